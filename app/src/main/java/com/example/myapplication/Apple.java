@@ -1,73 +1,61 @@
 package com.example.myapplication;
 
-import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Point;
-import java.util.Random;
+import android.graphics.RectF;
 
-class Apple implements Drawable {
+import com.example.myapplication.core.GameSnapshot;
 
-    // The location of the apple on the grid
-    // Not in pixels
-    private Point location = new Point();
+class Apple implements Drawable {
 
-    // The range of values we can choose from
-    // to spawn an apple
-    private Point mSpawnRange;
+    // The tick being drawn, handed over by the simulation thread
+    // Where the apple is lives in the core module
+    private GameSnapshot mFrame;
     private int mSize;
 
-    // An image to represent the apple
-    private Bitmap mBitmapApple;
+    // Where the scaled apple image lives
+    private RenderAssetCache mAssets;
 
-    /// Set up the apple in the constructor
-    Apple(Context context, Point sr, int s){
+    // Which part of the board is on screen
+    private Camera mCamera;
 
-        // Make a note of the passed in spawn range
-        mSpawnRange = sr;
-        // Make a note of the size of an apple
-        mSize = s;
-        // Hide the apple off-screen until the game starts
-        location.x = -10;
-
-        // Load the image to the bitmap
-        mBitmapApple = BitmapFactory.decodeResource(context.getResources(), R.drawable.apple);
+    // Where the apple goes on screen
+    private final RectF mDestination = new RectF();
 
-        // Resize the bitmap
-        mBitmapApple = Bitmap.createScaledBitmap(mBitmapApple, 150, 150, false);
-    }
+    /// Set up the apple in the constructor
+    Apple(RenderAssetCache assets, Camera camera, int s){
 
-    // This is called every time an apple is eaten
-    void spawn() {
-        // Choose two random values and place the apple
-        Random random = new Random();
-        int margin = 1; // Margin to leave from the edges
+        // The apple is skipped when the camera can't see it
+        mCamera = camera;
 
-        // Calculate the maximum allowed x and y coordinates within the screen
-        int maxX = mSpawnRange.x - margin ;
-        int maxY = mSpawnRange.y - margin ;
+        // Make a note of the size of an apple
+        mSize = s;
 
-        // Generate random x and y coordinates within the allowed range
-        location.x = random.nextInt(maxX) + margin;
-        location.y = random.nextInt(maxY) + margin;
+        // The image is scaled by the cache
+        // whenever the surface changes size
+        mAssets = assets;
     }
 
-
-
-
-    // Let SnakeGame know where the apple is
-    // SnakeGame can share this with the snake
-    Point getLocation(){
-        return location;
+    // Set before each draw
+    void setFrame(GameSnapshot frame) {
+        mFrame = frame;
     }
 
     // Draw the apple
+    // The canvas is already moved so board pixels line up with the camera
     public void draw(Canvas canvas, Paint paint){
-        canvas.drawBitmap(mBitmapApple,
-                location.x * mSize, location.y * mSize, paint);
+        if (mFrame == null) {
+            return;
+        }
+        float x = mFrame.getAppleX() * mSize;
+        float y = mFrame.getAppleY() * mSize;
+        if (!mCamera.isVisible(x, y)) {
+            return;
+        }
+        mDestination.set(x, y, x + mSize, y + mSize);
+        canvas.drawBitmap(mAssets.getAtlas(),
+                mAssets.getSpriteRect(RenderAssetCache.SPRITE_APPLE), mDestination, paint);
 
     }
 
-}
\ No newline at end of file
+}
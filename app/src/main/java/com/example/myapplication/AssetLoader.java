@@ -0,0 +1,185 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.SoundPool;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Loads the game's images and sounds off the UI thread.
+// The images are decoded in parallel, shrunk while decoding
+// to about the size they are drawn at.
+// The game can draw once the images are in, sounds play once each is ready
+class AssetLoader {
+
+    private static final String TAG = "AssetLoader";
+
+    // The images, in the order they are loaded
+    static final int IMAGE_BACKGROUND = 0;
+    static final int IMAGE_PAUSE = 1;
+    static final int IMAGE_HEAD = 2;
+    static final int IMAGE_BODY = 3;
+    static final int IMAGE_APPLE = 4;
+    private static final int IMAGE_COUNT = 5;
+
+    private static final int[] IMAGE_RESOURCES = {
+            R.drawable.background_image,
+            R.drawable.pause_icon,
+            R.drawable.head,
+            R.drawable.body,
+            R.drawable.apple
+    };
+
+    // The background has no see-through parts,
+    // so it can use half the memory
+    private static final Bitmap.Config OPAQUE_CONFIG = Bitmap.Config.RGB_565;
+
+    // The pause icon is drawn about this wide
+    private static final int PAUSE_ICON_SIZE = 60;
+
+    private final Resources mResources;
+    private final AssetManager mAssetManager;
+    private final SoundPool mSoundPool;
+    private final BitmapPool mBitmapPool;
+
+    // Filled in by the worker threads
+    private final Bitmap[] mImages = new Bitmap[IMAGE_COUNT];
+    private final AtomicInteger mImagesLeft = new AtomicInteger(IMAGE_COUNT);
+
+    // Sound ids, -1 until load() has returned them
+    private volatile int mEatSample = -1;
+    private volatile int mCrashSample = -1;
+    // The sound ids SoundPool says are ready to play
+    private final Set<Integer> mReadySamples =
+            Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+    // For the timing log
+    private long mStartMillis;
+
+    AssetLoader(Context context, SoundPool soundPool, BitmapPool bitmapPool) {
+        mResources = context.getResources();
+        mAssetManager = context.getAssets();
+        mSoundPool = soundPool;
+        mBitmapPool = bitmapPool;
+    }
+
+    // Start loading everything
+    // onImagesLoaded runs on the UI thread once every image is decoded
+    void start(int blockSize, int screenWidth, int screenHeight, final Runnable onImagesLoaded) {
+        mStartMillis = SystemClock.uptimeMillis();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        // A few threads is plenty for five small images
+        int threads = Math.min(IMAGE_COUNT, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        submitImage(executor, IMAGE_BACKGROUND, screenWidth, screenHeight, OPAQUE_CONFIG,
+                mainHandler, onImagesLoaded);
+        submitImage(executor, IMAGE_PAUSE, PAUSE_ICON_SIZE, PAUSE_ICON_SIZE,
+                Bitmap.Config.ARGB_8888, mainHandler, onImagesLoaded);
+        submitImage(executor, IMAGE_HEAD, blockSize, blockSize,
+                Bitmap.Config.ARGB_8888, mainHandler, onImagesLoaded);
+        submitImage(executor, IMAGE_BODY, blockSize, blockSize,
+                Bitmap.Config.ARGB_8888, mainHandler, onImagesLoaded);
+        submitImage(executor, IMAGE_APPLE, blockSize, blockSize,
+                Bitmap.Config.ARGB_8888, mainHandler, onImagesLoaded);
+
+        // Sounds are only marked playable when SoundPool has finished with them
+        mSoundPool.setOnLoadCompleteListener(new SoundPool.OnLoadCompleteListener() {
+            @Override
+            public void onLoadComplete(SoundPool soundPool, int sampleId, int status) {
+                if (status != 0) {
+                    Log.w(TAG, "Sound " + sampleId + " failed to load");
+                    return;
+                }
+                mReadySamples.add(sampleId);
+                if (mReadySamples.size() == 2) {
+                    Log.d(TAG, "Sounds ready after " + (SystemClock.uptimeMillis() - mStartMillis) + " ms");
+                }
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // Prepare the sounds in memory
+                    mEatSample = mSoundPool.load(mAssetManager.openFd("get_apple.ogg"), 0);
+                    mCrashSample = mSoundPool.load(mAssetManager.openFd("snake_death.ogg"), 0);
+                } catch (IOException e) {
+                    Log.w(TAG, "Couldn't open the sounds", e);
+                }
+            }
+        });
+
+        // The queued jobs still run, then the threads end
+        executor.shutdown();
+    }
+
+    private void submitImage(ExecutorService executor, final int image, final int width,
+                             final int height, final Bitmap.Config config,
+                             final Handler mainHandler, final Runnable onImagesLoaded) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mImages[image] = decode(IMAGE_RESOURCES[image], width, height, config);
+                if (mImagesLeft.decrementAndGet() == 0) {
+                    Log.d(TAG, "Images decoded in " + (SystemClock.uptimeMillis() - mStartMillis) + " ms");
+                    mainHandler.post(onImagesLoaded);
+                }
+            }
+        });
+    }
+
+    // Decode a resource at the smallest power of two shrink
+    // that still covers width by height
+    private Bitmap decode(int resource, int width, int height, Bitmap.Config config) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        // Don't scale up for the screen density,
+        // the cache scales everything to fit the grid itself
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(mResources, resource, options);
+
+        int sample = 1;
+        while (options.outWidth / (sample * 2) >= width
+                && options.outHeight / (sample * 2) >= height) {
+            sample *= 2;
+        }
+
+        // Decode into a bitmap an earlier game gave back, if there is one
+        options.inSampleSize = sample;
+        options.inPreferredConfig = config;
+        return mBitmapPool.decode(mResources, resource, options);
+    }
+
+    // Only call after onImagesLoaded has run
+    Bitmap getImage(int image) {
+        return mImages[image];
+    }
+
+    // -1 while the sound isn't ready to play
+    int getEatSound() {
+        return readySound(mEatSample);
+    }
+
+    int getCrashSound() {
+        return readySound(mCrashSample);
+    }
+
+    private int readySound(int sampleId) {
+        return sampleId != -1 && mReadySamples.contains(sampleId) ? sampleId : -1;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.myapplication;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.util.Log;
+
+import java.util.ArrayList;
+
+// Keeps bitmaps that are no longer drawn so the next one of the
+// same size and config can reuse their memory instead of allocating.
+// Shared by every game, so a new activity after a rotation
+// decodes into the bitmaps the old one gave back.
+// Holds at most the budget in bytes, dropping the oldest first
+class BitmapPool {
+
+    private static final String TAG = "BitmapPool";
+
+    // A quarter of the heap, but no more than this
+    private static final long MAX_DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    private static BitmapPool sShared;
+
+    // Bitmaps waiting to be reused, oldest first
+    private final ArrayList<Bitmap> mFree = new ArrayList<>();
+    private long mFreeBytes;
+    private long mBudgetBytes;
+
+    // How often a request could be served from the pool
+    private int mHits;
+    private int mMisses;
+
+    BitmapPool(long budgetBytes) {
+        mBudgetBytes = budgetBytes;
+    }
+
+    // The pool every game shares
+    static synchronized BitmapPool getShared() {
+        if (sShared == null) {
+            sShared = new BitmapPool(Math.min(MAX_DEFAULT_BUDGET_BYTES,
+                    Runtime.getRuntime().maxMemory() / 4));
+        }
+        return sShared;
+    }
+
+    // A blank mutable bitmap, reused from the pool if one matches
+    synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = take(width, height, config);
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            return bitmap;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    // Decode a resource, into a pooled bitmap if one matches
+    // options must already have inSampleSize and inPreferredConfig set
+    Bitmap decode(Resources resources, int resource,
+                  BitmapFactory.Options options) {
+        // Find out the size it will decode at
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resource, options);
+        options.inJustDecodeBounds = false;
+
+        // Reused bitmaps have to be mutable
+        options.inMutable = true;
+        options.inBitmap = take(options.outWidth, options.outHeight, options.inPreferredConfig);
+        try {
+            return BitmapFactory.decodeResource(resources, resource, options);
+        } catch (IllegalArgumentException e) {
+            // The decoder couldn't use it after all, decode into a new one
+            put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeResource(resources, resource, options);
+        }
+    }
+
+    // Give back a bitmap that won't be drawn again
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable()) {
+            // Can't be reused, just free it
+            bitmap.recycle();
+            return;
+        }
+        mFree.add(bitmap);
+        mFreeBytes += bitmap.getAllocationByteCount();
+        trimTo(mBudgetBytes);
+    }
+
+    synchronized void setBudgetBytes(long budgetBytes) {
+        mBudgetBytes = budgetBytes;
+        trimTo(budgetBytes);
+    }
+
+    // Called from the activity's onTrimMemory
+    // The further into the background we are, the more is freed
+    synchronized void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            trimTo(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimTo(mBudgetBytes / 2);
+        }
+        logStats("Trimmed for level " + level);
+    }
+
+    // Log how well the pool is doing
+    synchronized void logStats(String event) {
+        Log.d(TAG, event + ": " + mHits + " hits, " + mMisses + " misses, "
+                + mFree.size() + " bitmaps holding " + mFreeBytes + " of "
+                + mBudgetBytes + " bytes");
+    }
+
+    // Remove and return a pooled bitmap of exactly this size and config
+    private synchronized Bitmap take(int width, int height, Bitmap.Config config) {
+        for (int i = 0; i < mFree.size(); i++) {
+            Bitmap bitmap = mFree.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height
+                    && bitmap.getConfig() == config) {
+                mFree.remove(i);
+                mFreeBytes -= bitmap.getAllocationByteCount();
+                mHits++;
+                return bitmap;
+            }
+        }
+        mMisses++;
+        return null;
+    }
+
+    // Free the oldest bitmaps until the pool fits in bytes
+    private void trimTo(long bytes) {
+        while (mFreeBytes > bytes && !mFree.isEmpty()) {
+            Bitmap bitmap = mFree.remove(0);
+            mFreeBytes -= bitmap.getAllocationByteCount();
+            bitmap.recycle();
+        }
+    }
+}
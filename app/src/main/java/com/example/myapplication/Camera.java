@@ -0,0 +1,75 @@
+package com.example.myapplication;
+
+// Which part of the board is on screen.
+// Follows the snake's head and stops at the edges of the board.
+// A board smaller than the screen stays in the top left corner
+class Camera {
+
+    // How big a grid block is in pixels
+    private final int mBlockSize;
+
+    // The board size in pixels
+    private final int mBoardWidth;
+    private final int mBoardHeight;
+
+    // The screen size in pixels, 0 until the surface has a size
+    private int mViewWidth;
+    private int mViewHeight;
+
+    // The top left of the screen in board pixels
+    private float mX;
+    private float mY;
+
+    Camera(int boardWidth, int boardHeight, int blockSize) {
+        mBlockSize = blockSize;
+        mBoardWidth = boardWidth * blockSize;
+        mBoardHeight = boardHeight * blockSize;
+    }
+
+    // Called when the surface changes size
+    void setViewSize(int width, int height) {
+        mViewWidth = width;
+        mViewHeight = height;
+    }
+
+    // Centre on the block with its top left corner at x, y in board pixels
+    void follow(float x, float y) {
+        mX = clamp(x + mBlockSize / 2f - mViewWidth / 2f, mBoardWidth - mViewWidth);
+        mY = clamp(y + mBlockSize / 2f - mViewHeight / 2f, mBoardHeight - mViewHeight);
+    }
+
+    private static float clamp(float value, float max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    float getX() {
+        return mX;
+    }
+
+    float getY() {
+        return mY;
+    }
+
+    // The cells on screen, even partly, inclusive
+    int getFirstColumn() {
+        return (int) (mX / mBlockSize);
+    }
+
+    int getLastColumn() {
+        return (int) ((mX + mViewWidth) / mBlockSize);
+    }
+
+    int getFirstRow() {
+        return (int) (mY / mBlockSize);
+    }
+
+    int getLastRow() {
+        return (int) ((mY + mViewHeight) / mBlockSize);
+    }
+
+    // Is any of the block with its top left corner at x, y on screen?
+    boolean isVisible(float x, float y) {
+        return x + mBlockSize > mX && x < mX + mViewWidth
+                && y + mBlockSize > mY && y < mY + mViewHeight;
+    }
+}
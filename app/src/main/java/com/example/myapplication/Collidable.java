@@ -1,6 +0,0 @@
-package com.example.myapplication;
-
-import android.graphics.Point;
-public interface Collidable {
-    boolean checkCollision(Point otherLocation);
-}
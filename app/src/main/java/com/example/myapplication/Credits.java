@@ -0,0 +1,22 @@
+package com.example.myapplication;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+// The names in the top right corner
+// They never change so they're drawn once into the static layer
+class Credits implements Drawable {
+
+    private Paint mNamesPaint;
+
+    Credits(Paint namesPaint) {
+        mNamesPaint = namesPaint;
+    }
+
+    public void draw(Canvas canvas, Paint paint) {
+        // Draw names in the top right corner
+        canvas.drawText("HORMOZ HALIMI", canvas.getWidth() - 300, 50, mNamesPaint);
+        canvas.drawText("Rodrigo Guzman", canvas.getWidth() - 300, 100, mNamesPaint);
+        canvas.drawText("Dagem Kebede", canvas.getWidth() - 300, 150, mNamesPaint);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import com.example.myapplication.core.LatencyHistogram;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+// How long each part of the game loop takes, always recording.
+// Each phase has its own histogram, recorded into by the one thread
+// that runs that phase, so recording is a few adds and never allocates.
+// Written out to app storage whenever the game pauses
+class FrameMetrics {
+
+    private static final String TAG = "FrameMetrics";
+
+    // The phases that are timed
+    static final int PHASE_UPDATE = 0;
+    static final int PHASE_DRAW = 1;
+    static final int PHASE_LOCK_CANVAS = 2;
+    static final int PHASE_POST_CANVAS = 3;
+    // How long after it was due each run of ticks started
+    static final int PHASE_TICK_LATE = 4;
+    static final int PHASE_COUNT = 5;
+
+    static final String[] PHASE_NAMES = {
+            "update",
+            "draw",
+            "lockCanvas",
+            "unlockCanvasAndPost",
+            "tickLate"
+    };
+
+    // Older dumps are deleted past this many
+    private static final int MAX_DUMPS = 20;
+
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[PHASE_COUNT];
+
+    // Ticks that ran late enough to be caught up in a burst,
+    // and ticks that were dropped because we were too far behind
+    // Only the simulation thread writes these
+    private volatile long mLateTicks;
+    private volatile long mDroppedTicks;
+    // The clock's dropped count when we last looked
+    private long mClockDropped;
+
+    FrameMetrics() {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            mHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    // Only from the thread that runs the phase
+    void record(int phase, long nanos) {
+        mHistograms[phase].record(nanos);
+    }
+
+    // Called by the simulation thread after each advance that ticked
+    // clockDropped is the clock's running total
+    void recordTicks(int ticks, long lateNanos, long clockDropped) {
+        mHistograms[PHASE_TICK_LATE].record(lateNanos);
+        if (ticks > 1) {
+            mLateTicks += ticks - 1;
+        }
+        if (clockDropped != mClockDropped) {
+            mDroppedTicks += clockDropped - mClockDropped;
+            mClockDropped = clockDropped;
+        }
+    }
+
+    LatencyHistogram get(int phase) {
+        return mHistograms[phase];
+    }
+
+    long getLateTicks() {
+        return mLateTicks;
+    }
+
+    long getDroppedTicks() {
+        return mDroppedTicks;
+    }
+
+    // Copy everything, start counting again and write the copy
+    // into dir on another thread
+    // Only call while neither the simulation nor the render thread is running
+    void dumpAsync(final File dir) {
+        final LatencyHistogram[] copies = new LatencyHistogram[PHASE_COUNT];
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            copies[i] = new LatencyHistogram();
+            copies[i].copyFrom(mHistograms[i]);
+            mHistograms[i].reset();
+        }
+        final long lateTicks = mLateTicks;
+        final long droppedTicks = mDroppedTicks;
+        mLateTicks = 0;
+        mDroppedTicks = 0;
+        if (copies[PHASE_DRAW].getCount() == 0 && copies[PHASE_UPDATE].getCount() == 0) {
+            // Nothing happened worth writing
+            return;
+        }
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(dir, copies, lateTicks, droppedTicks);
+                } catch (IOException e) {
+                    Log.w(TAG, "Couldn't write the frame metrics", e);
+                }
+            }
+        }, "MetricsDump").start();
+    }
+
+    // One CSV per pause, a summary in # comments then every bucket that
+    // has anything in it
+    private static void write(File dir, LatencyHistogram[] histograms,
+                              long lateTicks, long droppedTicks) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Couldn't make " + dir);
+        }
+        File file = new File(dir, "frame-metrics-" + System.currentTimeMillis() + ".csv");
+        BufferedWriter out = new BufferedWriter(new FileWriter(file));
+        try {
+            out.write("# late ticks " + lateTicks + ", dropped ticks " + droppedTicks + "\n");
+            for (int i = 0; i < PHASE_COUNT; i++) {
+                LatencyHistogram h = histograms[i];
+                out.write("# " + PHASE_NAMES[i] + ": count " + h.getCount()
+                        + ", mean " + h.getMean() + " ns, p50 " + h.getPercentile(50)
+                        + " ns, p99 " + h.getPercentile(99) + " ns, max " + h.getMax() + " ns\n");
+            }
+            out.write("phase,bucket_max_ns,count\n");
+            for (int i = 0; i < PHASE_COUNT; i++) {
+                LatencyHistogram h = histograms[i];
+                for (int b = 0; b < LatencyHistogram.getBucketCount(); b++) {
+                    if (h.getCountAt(b) > 0) {
+                        out.write(PHASE_NAMES[i] + "," + LatencyHistogram.getBucketMax(b)
+                                + "," + h.getCountAt(b) + "\n");
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+        Log.d(TAG, "Frame metrics written to " + file);
+
+        // Keep only the newest dumps, the names sort by time
+        File[] dumps = dir.listFiles();
+        if (dumps != null && dumps.length > MAX_DUMPS) {
+            Arrays.sort(dumps);
+            for (int i = 0; i < dumps.length - MAX_DUMPS; i++) {
+                dumps[i].delete();
+            }
+        }
+    }
+}
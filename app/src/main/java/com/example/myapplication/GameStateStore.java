@@ -0,0 +1,173 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import com.example.myapplication.core.SnakeSimulation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Keeps the game that was running when the app was left,
+// so coming back carries on instead of starting again.
+// The simulation is saved into a buffer as its thread stops,
+// then written out on another thread, and read back before
+// the first frame of the next SnakeGame.
+// A save that hasn't reached the file yet is read straight from memory,
+// so a SnakeGame made just after another one paused still finds it.
+// If the file can't be brought up to date it's deleted, so the next
+// launch starts a new game rather than resuming an older one
+class GameStateStore {
+
+    private static final String TAG = "GameStateStore";
+
+    // The newest save not yet written, an empty buffer to delete the file
+    // Null once the file is up to date
+    private static ByteBuffer sPending;
+    private static final Object sLock = new Object();
+    // Only one thread writes the file at a time
+    private static final Object sFileLock = new Object();
+
+    private final File mFile;
+
+    GameStateStore(File file) {
+        mFile = file;
+    }
+
+    // Save the game on the thread that owns sim, then write it out
+    // on another thread
+    void saveAsync(SnakeSimulation sim) {
+        long start = System.nanoTime();
+        ByteBuffer state = ByteBuffer.allocateDirect(sim.getSaveSize());
+        sim.save(state);
+        state.flip();
+        Log.d(TAG, "Game saved in " + (System.nanoTime() - start) / 1000 + " us, "
+                + sim.getSnake().length() + " segments, " + state.limit() + " bytes");
+        writeAsync(state);
+    }
+
+    // Nothing worth coming back to, delete any saved game
+    void clearAsync() {
+        writeAsync(ByteBuffer.allocate(0));
+    }
+
+    // Put the saved game into sim, on the thread that owns it
+    // Returns false if there isn't one for a board like sim's
+    boolean restore(SnakeSimulation sim) {
+        long start = System.nanoTime();
+        ByteBuffer state;
+        synchronized (sLock) {
+            state = sPending;
+        }
+        try {
+            state = state != null ? state.duplicate() : read();
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't read " + mFile, e);
+            return false;
+        }
+        // An empty one is a delete on its way
+        if (state == null || !state.hasRemaining()) {
+            return false;
+        }
+        if (!sim.restore(state)) {
+            // Corrupt or from another board, it will never restore
+            Log.w(TAG, "Couldn't restore " + mFile + ", deleting it");
+            clearAsync();
+            return false;
+        }
+        Log.d(TAG, "Game restored in " + (System.nanoTime() - start) / 1000 + " us, "
+                + sim.getSnake().length() + " segments");
+        return true;
+    }
+
+    // The whole file, or null if there isn't one
+    private ByteBuffer read() throws IOException {
+        if (!mFile.isFile()) {
+            return null;
+        }
+        FileChannel channel = new FileInputStream(mFile).getChannel();
+        try {
+            ByteBuffer state = ByteBuffer.allocateDirect((int) channel.size());
+            while (state.hasRemaining() && channel.read(state) >= 0) {
+                // Keep reading until it's all in
+            }
+            state.flip();
+            return state;
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeAsync(ByteBuffer state) {
+        synchronized (sLock) {
+            sPending = state;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (sFileLock) {
+                    write();
+                }
+            }
+        }, "GameStateWrite").start();
+    }
+
+    // Write whatever is newest, an earlier thread may have done it already
+    private void write() {
+        ByteBuffer state;
+        synchronized (sLock) {
+            state = sPending;
+        }
+        if (state == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        File temp = new File(mFile.getPath() + ".tmp");
+        try {
+            if (state.limit() == 0) {
+                if (mFile.exists() && !mFile.delete()) {
+                    throw new IOException("Couldn't delete " + mFile);
+                }
+            } else {
+                // Write next to it then swap it in, so a kill part way
+                // through leaves the last save whole
+                FileChannel channel = new FileOutputStream(temp).getChannel();
+                try {
+                    ByteBuffer out = state.duplicate();
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                } finally {
+                    channel.close();
+                }
+                if (!temp.renameTo(mFile)) {
+                    throw new IOException("Couldn't rename " + temp);
+                }
+                Log.d(TAG, "Game written in " + (System.nanoTime() - start) / 1000 + " us to "
+                        + mFile);
+            }
+        } catch (IOException e) {
+            // Whatever is left is older than the game, so don't resume it
+            Log.w(TAG, "Couldn't write " + mFile + ", deleting it", e);
+            deleteFile(mFile);
+            deleteFile(temp);
+        }
+
+        synchronized (sLock) {
+            // A newer save has its own thread coming
+            if (sPending == state) {
+                sPending = null;
+            }
+        }
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Couldn't delete " + file);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.myapplication;
+
+import android.os.Trace;
+import android.util.Log;
+
+import com.example.myapplication.core.TraceRecorder;
+import com.example.myapplication.core.TraceSections;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+// The parts of the game loop that are traced.
+// Each one shows up in systrace and Perfetto as an android.os.Trace section
+// and is kept in the game's own recorder, which can be written out
+// as a Chrome trace JSON file without a computer attached
+class GameTrace {
+
+    private static final String TAG = "GameTrace";
+
+    // About the last ten seconds of a running game
+    private static final int CAPACITY = 1 << 14;
+
+    // The section ids, in the order the names are added
+    // The simulation adds its own after these
+    static final int TICK = 0;
+    static final int FRAME = 1;
+    static final int LOCK_CANVAS = 2;
+    static final int BACKGROUND = 3;
+    static final int APPLE = 4;
+    static final int SNAKE = 5;
+    static final int HUD = 6;
+    static final int POST_CANVAS = 7;
+    static final int TOUCH = 8;
+
+    private static final String[] NAMES = {
+            "tick",
+            "frame",
+            "lockCanvas",
+            "background",
+            "apple",
+            "snake",
+            "hud",
+            "unlockCanvasAndPost",
+            "touch"
+    };
+
+    // Hands every section to the platform's tracing too
+    private static final TraceSections PLATFORM_SECTIONS = new TraceSections() {
+        @Override
+        public void beginSection(String name) {
+            Trace.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            Trace.endSection();
+        }
+    };
+
+    // A recorder with the game's sections added
+    static TraceRecorder createRecorder() {
+        TraceRecorder recorder = new TraceRecorder(CAPACITY);
+        for (String name : NAMES) {
+            recorder.addName(name);
+        }
+        recorder.setSections(PLATFORM_SECTIONS);
+        return recorder;
+    }
+
+    // Write what the recorder holds into dir on another thread
+    // Open the file in chrome://tracing or ui.perfetto.dev
+    static void writeAsync(final TraceRecorder recorder, final File dir) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    Log.w(TAG, "Couldn't make " + dir);
+                    return;
+                }
+                File file = new File(dir, "trace-" + System.currentTimeMillis() + ".json");
+                try {
+                    Writer out = new BufferedWriter(new FileWriter(file));
+                    try {
+                        recorder.writeJson(out);
+                    } finally {
+                        out.close();
+                    }
+                    Log.d(TAG, recorder.getEventCount() + " trace events written to " + file);
+                } catch (IOException e) {
+                    Log.w(TAG, "Couldn't write the trace", e);
+                }
+            }
+        }, "TraceDump").start();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+
+// The score and the pause button.
+// Kept in its own layer that is only redrawn
+// when the score or the pause button changes
+class Hud implements Drawable {
+
+    // Where the score text sits
+    private static final float SCORE_X = 50;
+
+    private Paint mScorePaint;
+
+    // The score as characters, filled in without making a String
+    // An int never needs more than 11 characters
+    private final char[] mScoreChars = new char[11];
+
+    // The layer, one strip across the top of the surface
+    // Taken from and given back to the pool
+    private final BitmapPool mPool;
+    private Bitmap mLayer;
+    private Canvas mLayerCanvas;
+
+    // Where the pause button goes on screen
+    private Rect mPauseButton;
+
+    // What the layer is currently showing
+    private int mShownScore;
+    private boolean mShownPause;
+    private boolean mDirty = true;
+
+    Hud(Paint scorePaint, Rect pauseButton, BitmapPool pool) {
+        mScorePaint = scorePaint;
+        mPool = pool;
+        mPauseButton = pauseButton;
+    }
+
+    // Called from surfaceChanged once the pause button is placed
+    void resize(int width) {
+        release();
+
+        // Tall enough for the score and the pause button
+        float scoreBottom = mScorePaint.getTextSize() + mScorePaint.descent();
+        int height = (int) Math.ceil(Math.max(scoreBottom, mPauseButton.bottom));
+        mLayer = mPool.get(width, height, Bitmap.Config.ARGB_8888);
+        mLayerCanvas = new Canvas(mLayer);
+        mDirty = true;
+    }
+
+    // Called from surfaceDestroyed
+    void release() {
+        if (mLayer != null) {
+            mPool.put(mLayer);
+            mLayer = null;
+            mLayerCanvas = null;
+        }
+    }
+
+    long getByteCount() {
+        return mLayer == null ? 0 : mLayer.getAllocationByteCount();
+    }
+
+    // Redraw the layer only if something on it changed
+    // The pause icon is cut from the sprite atlas
+    void update(int score, boolean showPause, Bitmap atlas, Rect pauseIcon) {
+        if (mLayer == null || (!mDirty && score == mShownScore && showPause == mShownPause)) {
+            return;
+        }
+
+        // Start from a clear layer
+        mLayerCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+
+        // Draw the score
+        int scoreLength = formatScore(score);
+        mLayerCanvas.drawText(mScoreChars, mScoreChars.length - scoreLength, scoreLength,
+                SCORE_X, mScorePaint.getTextSize(), mScorePaint);
+
+        // Draw the pause button
+        if (showPause) {
+            mLayerCanvas.drawBitmap(atlas, pauseIcon, mPauseButton, null);
+        }
+
+        mShownScore = score;
+        mShownPause = showPause;
+        mDirty = false;
+    }
+
+    public void draw(Canvas canvas, Paint paint) {
+        if (mLayer != null) {
+            canvas.drawBitmap(mLayer, 0, 0, paint);
+        }
+    }
+
+    // Write the score into the end of mScoreChars
+    // and return how many characters it took
+    private int formatScore(int score) {
+        int end = mScoreChars.length;
+        int start = end;
+        // Work in negatives so the smallest int doesn't overflow
+        int value = score > 0 ? -score : score;
+        do {
+            mScoreChars[--start] = (char) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        if (score < 0) {
+            mScoreChars[--start] = '-';
+        }
+        return end - start;
+    }
+}
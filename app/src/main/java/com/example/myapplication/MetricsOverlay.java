@@ -0,0 +1,122 @@
+package com.example.myapplication;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.SystemClock;
+
+import com.example.myapplication.core.LatencyHistogram;
+
+// The frame metrics drawn over the game, for debugging.
+// The text is rebuilt twice a second into char arrays,
+// so showing it doesn't allocate either
+class MetricsOverlay implements Drawable {
+
+    // Where the first line goes, below the score
+    private static final float LEFT = 50;
+    private static final float TOP = 220;
+    private static final float TEXT_SIZE = 36;
+    private static final float LINE_HEIGHT = 44;
+
+    // How often the numbers change
+    private static final long REFRESH_MILLIS = 500;
+
+    // One line per phase, then the tick counts
+    private static final int LINE_COUNT = FrameMetrics.PHASE_COUNT + 1;
+    private static final int MAX_LINE_LENGTH = 80;
+
+    private final FrameMetrics mMetrics;
+    private final Paint mTextPaint = new Paint();
+    private final Paint mBackPaint = new Paint();
+
+    private final char[][] mLines = new char[LINE_COUNT][MAX_LINE_LENGTH];
+    private final int[] mLengths = new int[LINE_COUNT];
+    // How wide the longest line is in pixels
+    private float mWidth;
+    private long mRefreshedMillis = -REFRESH_MILLIS;
+    // Where the next character goes in the line being built
+    private int mAt;
+
+    MetricsOverlay(FrameMetrics metrics) {
+        mMetrics = metrics;
+        mTextPaint.setColor(Color.BLACK);
+        mTextPaint.setTypeface(Typeface.MONOSPACE);
+        mTextPaint.setTextSize(TEXT_SIZE);
+        // See-through white so the text shows over anything
+        mBackPaint.setColor(Color.argb(180, 255, 255, 255));
+    }
+
+    public void draw(Canvas canvas, Paint paint) {
+        long now = SystemClock.uptimeMillis();
+        if (now - mRefreshedMillis >= REFRESH_MILLIS) {
+            mRefreshedMillis = now;
+            refresh();
+        }
+
+        canvas.drawRect(LEFT - 10, TOP - LINE_HEIGHT,
+                LEFT + mWidth + 10, TOP + (LINE_COUNT - 1) * LINE_HEIGHT + 15, mBackPaint);
+        for (int i = 0; i < LINE_COUNT; i++) {
+            canvas.drawText(mLines[i], 0, mLengths[i], LEFT, TOP + i * LINE_HEIGHT, mTextPaint);
+        }
+    }
+
+    // Rebuild the lines from the histograms, times in microseconds
+    private void refresh() {
+        for (int i = 0; i < FrameMetrics.PHASE_COUNT; i++) {
+            LatencyHistogram h = mMetrics.get(i);
+            char[] line = mLines[i];
+            mAt = 0;
+            append(line, FrameMetrics.PHASE_NAMES[i]);
+            append(line, " p50 ");
+            append(line, h.getPercentile(50) / 1000);
+            append(line, " p99 ");
+            append(line, h.getPercentile(99) / 1000);
+            append(line, " max ");
+            append(line, h.getMax() / 1000);
+            append(line, " us");
+            mLengths[i] = mAt;
+        }
+
+        char[] line = mLines[FrameMetrics.PHASE_COUNT];
+        mAt = 0;
+        append(line, "late ticks ");
+        append(line, mMetrics.getLateTicks());
+        append(line, " dropped ");
+        append(line, mMetrics.getDroppedTicks());
+        mLengths[FrameMetrics.PHASE_COUNT] = mAt;
+
+        mWidth = 0;
+        for (int i = 0; i < LINE_COUNT; i++) {
+            mWidth = Math.max(mWidth, mTextPaint.measureText(mLines[i], 0, mLengths[i]));
+        }
+    }
+
+    private void append(char[] line, String text) {
+        int length = Math.min(text.length(), MAX_LINE_LENGTH - mAt);
+        text.getChars(0, length, line, mAt);
+        mAt += length;
+    }
+
+    // Digits are worked out backwards, then put in order
+    private void append(char[] line, long number) {
+        if (number == 0) {
+            if (mAt < MAX_LINE_LENGTH) {
+                line[mAt++] = '0';
+            }
+            return;
+        }
+        int digits = 0;
+        for (long n = number; n > 0; n /= 10) {
+            digits++;
+        }
+        if (mAt + digits > MAX_LINE_LENGTH) {
+            return;
+        }
+        for (int i = mAt + digits - 1; i >= mAt; i--) {
+            line[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        mAt += digits;
+    }
+}
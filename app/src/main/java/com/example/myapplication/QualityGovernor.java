@@ -0,0 +1,230 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+import android.view.WindowManager;
+
+// Trades looks for smoothness when the device is struggling.
+// Watches how long frames take to draw, how many miss their vsync
+// and how hot the device says it is, and steps through quality tiers.
+// A tier only drops after a couple of bad seconds and only comes back
+// after several good ones, so it doesn't flap between two tiers.
+// The simulation ticks on its own thread, so no tier changes the game speed.
+// Only the render thread calls it, apart from the thermal listener
+class QualityGovernor {
+
+    private static final String TAG = "QualityGovernor";
+
+    // Each tier keeps everything the one before it turned off
+    static final int TIER_FULL = 0;
+    // Sprites are drawn without bitmap filtering
+    static final int TIER_NO_FILTER = 1;
+    // Only every other vsync is drawn
+    static final int TIER_HALF_RATE = 2;
+    // A plain colour instead of the background image
+    static final int TIER_NO_BACKGROUND = 3;
+    private static final int LOWEST_TIER = TIER_NO_BACKGROUND;
+
+    // Frames are judged in windows of about a second
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    // A window is bad if more than this share of frames were late
+    // or drawing took more than this share of the frame on average
+    private static final float BAD_LATE_SHARE = 0.1f;
+    private static final float BAD_DRAW_SHARE = 0.75f;
+    // and good if it was well inside both
+    private static final float GOOD_LATE_SHARE = 0.01f;
+    private static final float GOOD_DRAW_SHARE = 0.4f;
+
+    // How many bad windows in a row drop a tier
+    // and how many good windows in a row raise one
+    private static final int BAD_WINDOWS_TO_DROP = 2;
+    private static final int GOOD_WINDOWS_TO_RAISE = 5;
+
+    // A frame is late if it came this many vsyncs after the last one
+    private static final float LATE_FRAMES = 1.5f;
+
+    // The time between vsyncs
+    private final long mVsyncNanos;
+
+    private final PowerManager mPowerManager;
+    // Null before Android 10, which has no thermal status
+    private final Object mThermalListener;
+    // Set by the thermal listener on the UI thread
+    private volatile int mThermalStatus;
+
+    private int mTier = TIER_FULL;
+    // Just from the frame times, the thermal status can only add to it
+    private int mFrameTier = TIER_FULL;
+    private int mBadWindows;
+    private int mGoodWindows;
+
+    // The window being measured
+    private long mWindowStart = -1;
+    private int mFrames;
+    private int mLateFrames;
+    private long mDrawTotal;
+    private long mDrawMax;
+    // When the last frame was drawn, -1 after going idle
+    private long mLastFrameNanos = -1;
+
+    // Counts vsyncs to skip every other one at half rate
+    private int mVsyncCount;
+
+    QualityGovernor(Context context) {
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+        mVsyncNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60));
+
+        mPowerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            mThermalListener = new PowerManager.OnThermalStatusChangedListener() {
+                @Override
+                public void onThermalStatusChanged(int status) {
+                    mThermalStatus = status;
+                }
+            };
+        } else {
+            mThermalListener = null;
+        }
+    }
+
+    // Called from resume()
+    // The listener is told the current status straight away
+    void start() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            mPowerManager.addThermalStatusListener(
+                    (PowerManager.OnThermalStatusChangedListener) mThermalListener);
+        }
+    }
+
+    // Called from pause()
+    void stop() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            mPowerManager.removeThermalStatusListener(
+                    (PowerManager.OnThermalStatusChangedListener) mThermalListener);
+        }
+    }
+
+    // Called every vsync while the game is running
+    // True if this vsync shouldn't be drawn
+    boolean skipFrame() {
+        mVsyncCount++;
+        return mTier >= TIER_HALF_RATE && (mVsyncCount & 1) != 0;
+    }
+
+    // Called after each frame drawn while the game is running
+    // frameTimeNanos is the vsync it was drawn for,
+    // drawNanos how long drawing and posting it took
+    void onFrameDrawn(long frameTimeNanos, long drawNanos) {
+        if (mWindowStart < 0) {
+            mWindowStart = frameTimeNanos;
+        }
+
+        // Late if it came well after the vsync it should have,
+        // counting the skipped ones at half rate
+        if (mLastFrameNanos >= 0) {
+            long expected = mTier >= TIER_HALF_RATE ? 2 * mVsyncNanos : mVsyncNanos;
+            if (frameTimeNanos - mLastFrameNanos > expected * LATE_FRAMES) {
+                mLateFrames++;
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+
+        mFrames++;
+        mDrawTotal += drawNanos;
+        mDrawMax = Math.max(mDrawMax, drawNanos);
+
+        if (frameTimeNanos - mWindowStart >= WINDOW_NANOS) {
+            endWindow();
+        }
+    }
+
+    // Called when the game stops running
+    // The gap until it runs again isn't a slow frame
+    void onIdle() {
+        mLastFrameNanos = -1;
+        mWindowStart = -1;
+        clearWindow();
+    }
+
+    // Judge the window that just finished and pick the tier
+    private void endWindow() {
+        float lateShare = (float) mLateFrames / mFrames;
+        float drawShare = (float) mDrawTotal / mFrames / mVsyncNanos;
+
+        String reason = null;
+        if (lateShare > BAD_LATE_SHARE || drawShare > BAD_DRAW_SHARE) {
+            mGoodWindows = 0;
+            if (++mBadWindows >= BAD_WINDOWS_TO_DROP && mFrameTier < LOWEST_TIER) {
+                mFrameTier++;
+                mBadWindows = 0;
+                reason = "slow frames";
+            }
+        } else if (lateShare < GOOD_LATE_SHARE && drawShare < GOOD_DRAW_SHARE) {
+            mBadWindows = 0;
+            if (++mGoodWindows >= GOOD_WINDOWS_TO_RAISE && mFrameTier > TIER_FULL) {
+                mFrameTier--;
+                mGoodWindows = 0;
+                reason = "fast frames";
+            }
+        } else {
+            // In between, keep going as we are
+            mBadWindows = 0;
+            mGoodWindows = 0;
+        }
+
+        int thermalStatus = mThermalStatus;
+        int tier = Math.max(mFrameTier, thermalTier(thermalStatus));
+        if (tier != mTier) {
+            if (reason == null) {
+                reason = "thermal status";
+            }
+            Log.i(TAG, "Quality tier " + mTier + " -> " + tier + " for " + reason + ": "
+                    + mLateFrames + " of " + mFrames + " frames late, draw average "
+                    + mDrawTotal / mFrames / 1000 + " us, max " + mDrawMax / 1000
+                    + " us, vsync " + mVsyncNanos / 1000 + " us, thermal status "
+                    + thermalStatus);
+            mTier = tier;
+            // The next window is judged at the new tier
+            mLastFrameNanos = -1;
+        }
+
+        mWindowStart = -1;
+        clearWindow();
+    }
+
+    private void clearWindow() {
+        mFrames = 0;
+        mLateFrames = 0;
+        mDrawTotal = 0;
+        mDrawMax = 0;
+    }
+
+    // The lowest tier the device's temperature allows
+    // Before Android 10 the status stays at 0, none
+    private static int thermalTier(int status) {
+        if (status >= PowerManager.THERMAL_STATUS_CRITICAL) {
+            return TIER_NO_BACKGROUND;
+        } else if (status >= PowerManager.THERMAL_STATUS_SEVERE) {
+            return TIER_HALF_RATE;
+        } else if (status >= PowerManager.THERMAL_STATUS_MODERATE) {
+            return TIER_NO_FILTER;
+        }
+        return TIER_FULL;
+    }
+
+    int getTier() {
+        return mTier;
+    }
+
+    boolean isFilteringOn() {
+        return mTier < TIER_NO_FILTER;
+    }
+
+    boolean isBackgroundOn() {
+        return mTier < TIER_NO_BACKGROUND;
+    }
+}
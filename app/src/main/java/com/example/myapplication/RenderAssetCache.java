@@ -0,0 +1,212 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+// Holds every scaled image the game draws.
+// The images are scaled once per surface size
+// instead of once per frame.
+// All the sprites share one atlas bitmap so they can be
+// drawn from a single texture
+class RenderAssetCache {
+
+    // The sprites in the atlas, in the order they are packed
+    static final int SPRITE_HEAD_RIGHT = 0;
+    static final int SPRITE_HEAD_LEFT = 1;
+    static final int SPRITE_HEAD_UP = 2;
+    static final int SPRITE_HEAD_DOWN = 3;
+    static final int SPRITE_BODY = 4;
+    static final int SPRITE_APPLE = 5;
+    static final int SPRITE_PAUSE = 6;
+    private static final int SPRITE_COUNT = 7;
+
+    // The pause icon is scaled to fit the score text
+    private static final float SCORE_TEXT_SIZE = 120;
+
+    // Where every bitmap comes from and goes back to
+    private final BitmapPool mPool;
+
+    // How big a grid block is in pixels
+    // Every game sprite is drawn at this size
+    private final int mBlockSize;
+
+    // The images as decoded from the resources
+    // Null until the loader hands them over
+    private Bitmap mSourceBackground;
+    private Bitmap mSourcePause;
+    private Bitmap mSourceHead;
+    private Bitmap mSourceBody;
+    private Bitmap mSourceApple;
+
+    // The scaled images, rebuilt when the surface changes
+    // The static layer is the background with everything
+    // that never changes already drawn on top
+    private Bitmap mStaticLayer;
+    private Bitmap mAtlas;
+
+    // Where each sprite is in the atlas
+    private final Rect[] mSpriteRects = new Rect[SPRITE_COUNT];
+
+    // Reused for every scale and rotation
+    private final Matrix mMatrix = new Matrix();
+
+    // Smooths the images as they're scaled
+    private final Paint mFilterPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    // The surface size the scaled images were built for
+    private int mWidth = -1;
+    private int mHeight = -1;
+
+    RenderAssetCache(int blockSize, BitmapPool pool) {
+        mBlockSize = blockSize;
+        mPool = pool;
+        for (int i = 0; i < SPRITE_COUNT; i++) {
+            mSpriteRects[i] = new Rect();
+        }
+    }
+
+    // Called once the loader has decoded every image
+    synchronized void setSources(AssetLoader loader) {
+        mSourceBackground = loader.getImage(AssetLoader.IMAGE_BACKGROUND);
+        mSourcePause = loader.getImage(AssetLoader.IMAGE_PAUSE);
+        mSourceHead = loader.getImage(AssetLoader.IMAGE_HEAD);
+        mSourceBody = loader.getImage(AssetLoader.IMAGE_BODY);
+        mSourceApple = loader.getImage(AssetLoader.IMAGE_APPLE);
+    }
+
+    // Called when the game is finished with
+    // Gives the decoded images back to the pool
+    synchronized void releaseSources() {
+        release();
+        mPool.put(mSourceBackground);
+        mPool.put(mSourcePause);
+        mPool.put(mSourceHead);
+        mPool.put(mSourceBody);
+        mPool.put(mSourceApple);
+        mSourceBackground = null;
+        mSourcePause = null;
+        mSourceHead = null;
+        mSourceBody = null;
+        mSourceApple = null;
+    }
+
+    synchronized boolean hasSources() {
+        return mSourceBackground != null;
+    }
+
+    // Called when the surface changes and when the images arrive
+    // Does nothing if the images already match this size
+    // or haven't been decoded yet
+    // staticContent is drawn once over the background
+    synchronized void rebuild(int width, int height, Drawable staticContent) {
+        if (!hasSources() || (isReady() && width == mWidth && height == mHeight)) {
+            return;
+        }
+        release();
+
+        // Stretch the background over the whole surface
+        // and add the static content on top
+        Matrix matrix = mMatrix;
+        matrix.setScale((float) width / mSourceBackground.getWidth(),
+                (float) height / mSourceBackground.getHeight());
+        mStaticLayer = mPool.get(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mStaticLayer);
+        canvas.drawColor(Color.BLACK);
+        canvas.drawBitmap(mSourceBackground, matrix, mFilterPaint);
+        staticContent.draw(canvas, mFilterPaint);
+
+        buildAtlas();
+
+        mWidth = width;
+        mHeight = height;
+    }
+
+    // Pack the game sprites side by side, one block each,
+    // with the pause icon at the end
+    private void buildAtlas() {
+        int block = mBlockSize;
+        float iconScale = SCORE_TEXT_SIZE / (mSourcePause.getWidth() * 2);
+        int pauseWidth = (int) (mSourcePause.getWidth() * iconScale);
+        int pauseHeight = (int) (mSourcePause.getHeight() * iconScale);
+
+        for (int i = 0; i < SPRITE_PAUSE; i++) {
+            mSpriteRects[i].set(i * block, 0, (i + 1) * block, block);
+        }
+        mSpriteRects[SPRITE_PAUSE].set(SPRITE_PAUSE * block, 0,
+                SPRITE_PAUSE * block + pauseWidth, pauseHeight);
+
+        mAtlas = mPool.get(SPRITE_PAUSE * block + pauseWidth,
+                Math.max(block, pauseHeight), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mAtlas);
+
+        // The head facing right, then mirrored and rotated
+        // for the other three headings
+        drawSprite(canvas, mSourceHead, SPRITE_HEAD_RIGHT, 1, 0);
+        drawSprite(canvas, mSourceHead, SPRITE_HEAD_LEFT, -1, 0);
+        drawSprite(canvas, mSourceHead, SPRITE_HEAD_UP, -1, -90);
+        drawSprite(canvas, mSourceHead, SPRITE_HEAD_DOWN, -1, 90);
+        drawSprite(canvas, mSourceBody, SPRITE_BODY, 1, 0);
+        drawSprite(canvas, mSourceApple, SPRITE_APPLE, 1, 0);
+        drawSprite(canvas, mSourcePause, SPRITE_PAUSE, 1, 0);
+    }
+
+    // Scale the source into its slot, mirroring and then rotating about the centre
+    private void drawSprite(Canvas canvas, Bitmap source, int sprite, float mirror, float degrees) {
+        Rect slot = mSpriteRects[sprite];
+        canvas.save();
+        canvas.clipRect(slot);
+        canvas.translate(slot.exactCenterX(), slot.exactCenterY());
+        canvas.scale(mirror, 1);
+        canvas.rotate(degrees);
+        mMatrix.setScale((float) slot.width() / source.getWidth(),
+                (float) slot.height() / source.getHeight());
+        mMatrix.postTranslate(-slot.width() / 2f, -slot.height() / 2f);
+        canvas.drawBitmap(source, mMatrix, mFilterPaint);
+        canvas.restore();
+    }
+
+    // Called from surfaceDestroyed
+    // Gives the scaled images back to the pool but keeps the decoded sources
+    synchronized void release() {
+        mPool.put(mStaticLayer);
+        mPool.put(mAtlas);
+        mStaticLayer = null;
+        mAtlas = null;
+        mWidth = -1;
+        mHeight = -1;
+    }
+
+    synchronized boolean isReady() {
+        return mStaticLayer != null;
+    }
+
+    // How much memory the scaled images are holding
+    synchronized long getByteCount() {
+        return byteCount(mStaticLayer) + byteCount(mAtlas);
+    }
+
+    Bitmap getStaticLayer() {
+        return mStaticLayer;
+    }
+
+    Bitmap getAtlas() {
+        return mAtlas;
+    }
+
+    // Where a sprite is in the atlas
+    Rect getSpriteRect(int sprite) {
+        return mSpriteRects[sprite];
+    }
+
+    int getBlockSize() {
+        return mBlockSize;
+    }
+
+    private static long byteCount(Bitmap bitmap) {
+        return bitmap == null ? 0 : bitmap.getAllocationByteCount();
+    }
+}
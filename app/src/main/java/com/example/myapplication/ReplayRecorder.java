@@ -0,0 +1,157 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import com.example.myapplication.core.ReplayWriter;
+import com.example.myapplication.core.SnakeSimulation;
+import com.example.myapplication.core.Turn;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Records every game into its own replay file in app storage,
+// so a death someone reports can be played back exactly.
+// Only the simulation thread uses it.
+// If the file can't be written the game carries on unrecorded
+class ReplayRecorder {
+
+    private static final String TAG = "ReplayRecorder";
+
+    // Older replays are deleted past this many
+    private static final int MAX_REPLAYS = 20;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final File mDir;
+
+    // Null between games or after a write failed
+    private ReplayWriter mWriter;
+    // What mWriter writes to, closed here too if writing fails
+    private FileChannel mChannel;
+    private File mFile;
+
+    ReplayRecorder(File dir) {
+        mDir = dir;
+    }
+
+    // Start recording a new game, after sim.newGame()
+    // Any game still being recorded is closed without an end
+    void start(SnakeSimulation sim, long seed) {
+        close();
+        if (!mDir.isDirectory() && !mDir.mkdirs()) {
+            Log.w(TAG, "Couldn't make " + mDir);
+            return;
+        }
+        deleteOldReplays();
+
+        mFile = new File(mDir, "replay-" + System.currentTimeMillis() + ".snkr");
+        try {
+            mChannel = new FileOutputStream(mFile).getChannel();
+            mWriter = new ReplayWriter(mChannel, BUFFER_SIZE);
+            mWriter.begin(seed, sim.getBoard().getWidth(), sim.getBoard().getHeight(),
+                    sim.getEatReach());
+        } catch (IOException e) {
+            fail(e);
+            // Without a header there's nothing to play back
+            if (mFile.exists() && !mFile.delete()) {
+                Log.w(TAG, "Couldn't delete " + mFile);
+            }
+        }
+    }
+
+    // Called with the turn just before each tick
+    void turn(SnakeSimulation sim, Turn turn) {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.turn(sim.getTicks() + 1, turn);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // Called after each tick
+    void ticked(SnakeSimulation sim) {
+        if (mWriter == null || sim.getTicks() % ReplayWriter.CHECKPOINT_TICKS != 0) {
+            return;
+        }
+        try {
+            mWriter.checkpoint(sim.getTicks(), sim.getStateHash());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // Called when the game is over
+    void end(SnakeSimulation sim) {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.end(sim.getTicks(), sim.getStateHash());
+            mWriter.close();
+            Log.d(TAG, "Game recorded to " + mFile);
+        } catch (IOException e) {
+            fail(e);
+        }
+        mWriter = null;
+        mChannel = null;
+    }
+
+    // Called when the simulation thread stops,
+    // so the game so far is on disk if the process is killed
+    void flush() {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void close() {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.close();
+        } catch (IOException e) {
+            fail(e);
+        }
+        mWriter = null;
+        mChannel = null;
+    }
+
+    // Stop recording this game
+    // The writer's close() flushes first, which may fail again,
+    // so the channel is closed directly to let go of the file
+    private void fail(IOException e) {
+        Log.w(TAG, "Couldn't record to " + mFile, e);
+        mWriter = null;
+        if (mChannel != null) {
+            try {
+                mChannel.close();
+            } catch (IOException closeError) {
+                // Already failed, nothing more to do
+            }
+            mChannel = null;
+        }
+    }
+
+    // Keep only the newest replays, the names sort by time
+    private void deleteOldReplays() {
+        File[] replays = mDir.listFiles();
+        if (replays != null && replays.length >= MAX_REPLAYS) {
+            Arrays.sort(replays);
+            for (int i = 0; i <= replays.length - MAX_REPLAYS; i++) {
+                replays[i].delete();
+            }
+        }
+    }
+}
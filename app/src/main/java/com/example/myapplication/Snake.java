@@ -1,275 +1,168 @@
 package com.example.myapplication;
 
-import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
-import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Point;
+import android.graphics.RectF;
 import android.view.MotionEvent;
 
-import java.util.ArrayList;
+import com.example.myapplication.core.GameSnapshot;
+import com.example.myapplication.core.SegmentRing;
+import com.example.myapplication.core.Turn;
 
-class Snake  implements Drawable, Collidable  {
+class Snake  implements Drawable  {
 
-    // The location in the grid of all the segments
-    private ArrayList<Point> segmentLocations;
+    // Half the size of the apple and the head hitboxes in pixels
+    // The head eats the apple when these overlap
+    // Kept from the old 150 pixel sprites so eating feels the same
+    private static final int HALF_APPLE_SIZE = 40;
+    private static final int HALF_HEAD_SIZE = 40;
+
+    // The tick being drawn, handed over by the simulation thread
+    // The rules for the snake live in the core module
+    private GameSnapshot mFrame;
 
     // How big is each segment of the snake?
     private int mSegmentSize ;
 
-    // How big is the entire grid
-    private Point mMoveRange;
-
     // Where is the centre of the screen
     // horizontally in pixels?
     private int halfWayPoint;
 
-    // For tracking movement Heading
-    private enum Heading {
-        UP, RIGHT, DOWN, LEFT
-    }
+    // Where the scaled head and body images live
+    private RenderAssetCache mAssets;
 
-    // Start by heading to the right
-    private Heading heading = Heading.RIGHT;
+    // Which part of the board is on screen
+    private Camera mCamera;
 
-    // A bitmap for each direction the head can face
-    private Bitmap mBitmapHeadRight;
-    private Bitmap mBitmapHeadLeft;
-    private Bitmap mBitmapHeadUp;
-    private Bitmap mBitmapHeadDown;
+    // How far between the last tick and the next one to draw, 0 to 1
+    private float mAlpha = 1;
 
-    // A bitmap for the body
-    private Bitmap mBitmapBody;
+    // Draws every body segment in one go
+    private final SpriteBatch mBodyBatch = new SpriteBatch();
+    // Where the head goes on screen
+    private final RectF mHeadDestination = new RectF();
 
 
-    Snake(Context context, Point mr, int ss) {
+    Snake(RenderAssetCache assets, Camera camera, Point mr, int ss) {
         super();
 
-        // Initialize our ArrayList
-        segmentLocations = new ArrayList<>();
+        // Only the cells the camera can see get drawn
+        mCamera = camera;
 
-        // Initialize the segment size and movement
-        // range from the passed in parameters
+        // Initialize the segment size from the passed in parameters
         mSegmentSize = ss;
 
-        mMoveRange = mr;
-
-
-        // Create and scale the bitmaps
-        mBitmapHeadRight = BitmapFactory.decodeResource(context.getResources(), R.drawable.head);
-
-// Create 3 more versions of the head for different headings
-        mBitmapHeadLeft = BitmapFactory.decodeResource(context.getResources(), R.drawable.head);
-
-        mBitmapHeadUp = BitmapFactory.decodeResource(context.getResources(), R.drawable.head);
-
-        mBitmapHeadDown = BitmapFactory .decodeResource(context.getResources(), R.drawable.head);
-
-// Modify the bitmaps to face the snake head
-// in the correct direction
-        mBitmapHeadRight = Bitmap.createScaledBitmap(mBitmapHeadRight, 150, 150, false);
-
-// A matrix for scaling
-        Matrix matrix = new Matrix();
-        matrix.preScale(-1, 1);
-
-        mBitmapHeadLeft = Bitmap.createBitmap(mBitmapHeadRight, 0, 0, 150, 150, matrix, true);
-
-// A matrix for rotating
-        matrix.preRotate(-90);
-        mBitmapHeadUp = Bitmap.createBitmap(mBitmapHeadRight, 0, 0, 150, 150, matrix, true);
-
-// Matrix operations are cumulative
-// so rotate by 180 to face down
-        matrix.preRotate(180);
-        mBitmapHeadDown = Bitmap.createBitmap(mBitmapHeadRight, 0, 0, 150, 150, matrix, true);
-
-// Create and scale the body
-        mBitmapBody = BitmapFactory.decodeResource(context.getResources(), R.drawable.body);
-
-        mBitmapBody = Bitmap.createScaledBitmap(mBitmapBody, 120, 120, false);
+        // The images are scaled by the cache
+        // whenever the surface changes size
+        mAssets = assets;
 
         // The halfway point across the screen in pixels
         // Used to detect which side of screen was pressed
         halfWayPoint = mr.x * ss / 2;
     }
 
-    // Get the snake ready for a new game
-    void reset(int w, int h) {
-
-        // Reset the heading
-        heading = Heading.RIGHT;
-
-        // Delete the old contents of the ArrayList
-        segmentLocations.clear();
-
-        // Start with a single snake segment
-        segmentLocations.add(new Point(w / 2, h / 2));
-    }
-
-
-
-
-    boolean detectDeath() {
-        // Has the snake died?
-        boolean dead = false;
-
-        // Hit any of the screen edges
-        if (segmentLocations.get(0).x < 0 || segmentLocations.get(0).x >= mMoveRange.x ||
-                segmentLocations.get(0).y < 0 || segmentLocations.get(0).y >= mMoveRange.y) {
-            dead = true;
-        }
-
-        // Eaten itself?
-        for (int i = segmentLocations.size() - 1; i > 0; i--) {
-            // Have any of the sections collided with the head
-            if (segmentLocations.get(0).x == segmentLocations.get(i).x &&
-                    segmentLocations.get(0).y == segmentLocations.get(i).y) {
-                dead = true;
-            }
-        }
-
-        return dead;
-    }
-
-
-    public boolean checkCollision(Point l) {
-        // Calculate the range for collision detection
-        int halfAppleSize = 40; // Half of the apple size
-        int halfHeadSize = 40; // Half of the snake's head size
-
-        // Calculate the center points of the snake's head and the apple
-        int headCenterX = segmentLocations.get(0).x * mSegmentSize + halfHeadSize;
-        int headCenterY = segmentLocations.get(0).y * mSegmentSize + halfHeadSize;
-        int appleCenterX = l.x * mSegmentSize + halfAppleSize;
-        int appleCenterY = l.y * mSegmentSize + halfAppleSize;
-
-        // Calculate the distance between the centers of the snake's head and the apple
-        int distanceX = Math.abs(headCenterX - appleCenterX);
-        int distanceY = Math.abs(headCenterY - appleCenterY);
-
-        // Check if the distance between the centers is within the collision range
-        if (distanceX < halfAppleSize + halfHeadSize && distanceY < halfAppleSize + halfHeadSize) {
-            // Add a new Point to the list
-            // located off-screen.
-            // This is OK because on the next call to
-            // move it will take the position of
-            // the segment in front of it
-            segmentLocations.add(new Point(-10, -10));
-            return true;
-        }
-        return false;
+    // How many cells apart the head and the apple can be
+    // while their hitboxes still overlap
+    // The simulation's collision grid gives the apple this reach
+    static int eatReach(int segmentSize) {
+        return (HALF_APPLE_SIZE + HALF_HEAD_SIZE - 1) / segmentSize;
     }
 
 
-
-    public void move() {
-        // Move the body
-        for (int i = segmentLocations.size() - 1; i > 0; i--) {
-            // Move each segment to the position of the segment in front of it
-            segmentLocations.get(i).x = segmentLocations.get(i - 1).x;
-            segmentLocations.get(i).y = segmentLocations.get(i - 1).y;
-        }
-
-        // Move the head in the appropriate heading
-        Point p = new Point(segmentLocations.get(0).x, segmentLocations.get(0).y);
-        switch (heading) {
-            case UP:
-                p.y--;
-                break;
-            case RIGHT:
-                p.x++;
-                break;
-            case DOWN:
-                p.y++;
-                break;
-            case LEFT:
-                p.x--;
-                break;
-        }
-        segmentLocations.set(0, p);
+    // Set before each draw
+    // alpha slides the snake smoothly between ticks
+    void setFrame(GameSnapshot frame, float alpha) {
+        mFrame = frame;
+        mAlpha = alpha;
     }
 
-
+    // The canvas is already moved so board pixels line up with the camera
     public void draw(Canvas canvas, Paint paint) {
-        if (!segmentLocations.isEmpty()) {
-            // Draw the snake body first, starting from the end of the list
-            for (int i = segmentLocations.size() - 1; i > 0; i--) {
-                int x = segmentLocations.get(i).x * mSegmentSize;
-                int y = segmentLocations.get(i).y * mSegmentSize;
-                canvas.drawBitmap(mBitmapBody, x, y, paint);
+        int length = mFrame == null ? 0 : mFrame.getLength();
+        if (length > 0) {
+            Bitmap atlas = mAssets.getAtlas();
+            int head = mFrame.getHead();
+            int tail = mFrame.getTail();
+
+            // Draw the snake body first
+            // Every body segment between the head and the tail stays on
+            // its cell between ticks, so only the cells on screen are
+            // looked at, however long the snake or big the board
+            // The whole body goes to the canvas as one batch
+            mBodyBatch.begin(canvas, atlas, mAssets.getSpriteRect(RenderAssetCache.SPRITE_BODY),
+                    mSegmentSize, paint);
+            int lastRow = mCamera.getLastRow();
+            int lastColumn = mCamera.getLastColumn();
+            for (int y = mCamera.getFirstRow(); y <= lastRow; y++) {
+                for (int x = mCamera.getFirstColumn(); x <= lastColumn; x++) {
+                    if (mFrame.isOccupied(x, y)) {
+                        int cell = SegmentRing.pack(x, y);
+                        if (cell != head && cell != tail) {
+                            mBodyBatch.add(x * mSegmentSize, y * mSegmentSize);
+                        }
+                    }
+                }
+            }
+
+            // The tail slides off the cell it left
+            if (length > 1) {
+                float tailX = lerp(SegmentRing.unpackX(mFrame.getTailFrom()), SegmentRing.unpackX(tail));
+                float tailY = lerp(SegmentRing.unpackY(mFrame.getTailFrom()), SegmentRing.unpackY(tail));
+                if (mCamera.isVisible(tailX, tailY)) {
+                    mBodyBatch.add(tailX, tailY);
+                }
             }
+            mBodyBatch.end();
 
             // Draw the head on top
-            switch (heading) {
-                case RIGHT:
-                    canvas.drawBitmap(mBitmapHeadRight,
-                            segmentLocations.get(0).x * mSegmentSize,
-                            segmentLocations.get(0).y * mSegmentSize, paint);
-                    break;
+            int sprite;
+            switch (mFrame.getHeading()) {
                 case LEFT:
-                    canvas.drawBitmap(mBitmapHeadLeft,
-                            segmentLocations.get(0).x * mSegmentSize,
-                            segmentLocations.get(0).y * mSegmentSize, paint);
+                    sprite = RenderAssetCache.SPRITE_HEAD_LEFT;
                     break;
                 case UP:
-                    canvas.drawBitmap(mBitmapHeadUp,
-                            segmentLocations.get(0).x * mSegmentSize,
-                            segmentLocations.get(0).y * mSegmentSize, paint);
+                    sprite = RenderAssetCache.SPRITE_HEAD_UP;
                     break;
                 case DOWN:
-                    canvas.drawBitmap(mBitmapHeadDown,
-                            segmentLocations.get(0).x * mSegmentSize,
-                            segmentLocations.get(0).y * mSegmentSize, paint);
+                    sprite = RenderAssetCache.SPRITE_HEAD_DOWN;
+                    break;
+                default:
+                    sprite = RenderAssetCache.SPRITE_HEAD_RIGHT;
                     break;
             }
+            float headX = getHeadDrawX();
+            float headY = getHeadDrawY();
+            if (!mCamera.isVisible(headX, headY)) {
+                return;
+            }
+            mHeadDestination.set(headX, headY, headX + mSegmentSize, headY + mSegmentSize);
+            canvas.drawBitmap(atlas, mAssets.getSpriteRect(sprite), mHeadDestination, paint);
         }
     }
 
+    // Board pixel position of the head part way between
+    // where it was last tick and where it is now
+    // The camera follows this
+    float getHeadDrawX() {
+        return lerp(SegmentRing.unpackX(mFrame.getHeadFrom()), SegmentRing.unpackX(mFrame.getHead()));
+    }
 
+    float getHeadDrawY() {
+        return lerp(SegmentRing.unpackY(mFrame.getHeadFrom()), SegmentRing.unpackY(mFrame.getHead()));
+    }
 
+    // Pixel position part way from one cell coordinate to another
+    private float lerp(int from, int to) {
+        return (from + (to - from) * mAlpha) * mSegmentSize;
+    }
 
 
     // Handle changing direction
-    void switchHeading(MotionEvent motionEvent) {
-
-        // Is the tap on the right hand side?
-        if (motionEvent.getX() >= halfWayPoint) {
-            switch (heading) {
-                // Rotate right
-                case UP:
-                    heading = Heading.RIGHT;
-                    break;
-                case RIGHT:
-                    heading = Heading.DOWN;
-                    break;
-                case DOWN:
-                    heading = Heading.LEFT;
-                    break;
-                case LEFT:
-                    heading = Heading.UP;
-                    break;
-
-            }
-        } else {
-            // Rotate left
-            switch (heading) {
-                case UP:
-                    heading = Heading.LEFT;
-                    break;
-                case LEFT:
-                    heading = Heading.DOWN;
-                    break;
-                case DOWN:
-                    heading = Heading.RIGHT;
-                    break;
-                case RIGHT:
-                    heading = Heading.UP;
-                    break;
-            }
-        }
+    // Rotate right for a tap on the right hand side, otherwise left
+    Turn getTurn(MotionEvent motionEvent) {
+        return motionEvent.getX() >= halfWayPoint ? Turn.RIGHT : Turn.LEFT;
     }
 
 
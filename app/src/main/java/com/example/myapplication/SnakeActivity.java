@@ -9,6 +9,14 @@ import android.view.Display;
 
 public class SnakeActivity extends Activity {
 
+    // Optional board size in cells, for boards bigger than the screen
+    static final String EXTRA_BOARD_WIDTH = "board_width";
+    static final String EXTRA_BOARD_HEIGHT = "board_height";
+    // Let the autopilot play, for attract mode and soak tests
+    static final String EXTRA_AUTOPILOT = "autopilot";
+    // Start with the frame metrics showing, two fingers toggles them
+    static final String EXTRA_METRICS = "metrics";
+
     // Declare an instance of SnakeGame
     SnakeGame mSnakeGame;
 
@@ -24,8 +32,14 @@ public class SnakeActivity extends Activity {
         Point size = new Point();
         display.getSize(size);
 
+        // Leaving the board size out fits the board to the screen
+        Point board = new Point(getIntent().getIntExtra(EXTRA_BOARD_WIDTH, 0),
+                getIntent().getIntExtra(EXTRA_BOARD_HEIGHT, 0));
+
         // Create a new instance of the SnakeEngine class
-        mSnakeGame = new SnakeGame(this, size);
+        mSnakeGame = new SnakeGame(this, size, board,
+                getIntent().getBooleanExtra(EXTRA_AUTOPILOT, false));
+        mSnakeGame.setMetricsShown(getIntent().getBooleanExtra(EXTRA_METRICS, false));
 
         // Make snakeEngine the view of the Activity
         setContentView(mSnakeGame);
@@ -44,4 +58,18 @@ public class SnakeActivity extends Activity {
         super.onPause();
         mSnakeGame.pause();
     }
+
+    // Give the bitmaps back so the next game can reuse them
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mSnakeGame.release();
+    }
+
+    // Free pooled bitmaps when the system is short of memory
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        BitmapPool.getShared().onTrimMemory(level);
+    }
 }
@@ -1,64 +1,189 @@
 package com.example.myapplication;
 
 import android.content.Context;
-import android.content.res.AssetFileDescriptor;
-import android.content.res.AssetManager;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.media.AudioAttributes;
 import android.media.AudioManager;
 import android.media.SoundPool;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
-import java.io.IOException;
 
-class SnakeGame extends SurfaceView implements Runnable {
+import com.example.myapplication.core.Autopilot;
+import com.example.myapplication.core.FixedStepClock;
+import com.example.myapplication.core.GameSnapshot;
+import com.example.myapplication.core.InputQueue;
+import com.example.myapplication.core.SnakeSimulation;
+import com.example.myapplication.core.SnapshotExchange;
+import com.example.myapplication.core.TraceRecorder;
+import com.example.myapplication.core.Turn;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+class SnakeGame extends SurfaceView implements Runnable, Choreographer.FrameCallback,
+        SurfaceHolder.Callback {
+
+    private static final String TAG = "SnakeGame";
+
+    // Run at 10 updates per second
+    private static final long TICKS_PER_SECOND = 10;
+    // After a stall, run at most this many updates in one frame
+    private static final int MAX_CATCH_UP_TICKS = 3;
 
     // Objects for the game loop/thread
-    private Thread mThread = null;
-    // Control pausing between updates
-    private long mNextFrameTime;
+    // The simulation ticks on its own thread and the
+    // render thread draws whatever it finished last
+    private Thread mSimThread = null;
+    private HandlerThread mThread = null;
+    private volatile Handler mHandler = null;
+    // Lowers the drawing quality when frames are slow or the device is hot
+    private QualityGovernor mGovernor;
+    // How long each part of the loop takes, and the overlay that shows it
+    private final FrameMetrics mMetrics = new FrameMetrics();
+    private final MetricsOverlay mMetricsOverlay = new MetricsOverlay(mMetrics);
+    private volatile boolean mShowMetrics = false;
+    // The most fingers down at once during this touch
+    // Two shows the metrics, three writes out the trace,
+    // and neither turns the snake
+    private int mMaxPointers = 0;
+    // Times each part of the loop for systrace and the trace file
+    private final TraceRecorder mTrace = GameTrace.createRecorder();
+    // Is a frame already on its way?
+    // While paused nothing is scheduled and the thread sleeps
+    private final AtomicBoolean mFrameScheduled = new AtomicBoolean();
+    private final Runnable mScheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            // Frame callbacks arrive on the thread that asked for them
+            Choreographer.getInstance().postFrameCallback(SnakeGame.this);
+        }
+    };
+    // When the game last went idle, for measuring idle CPU use
+    // -1 while the game is running
+    private long mIdleStartWallMillis = -1;
+    private long mIdleStartCpuMillis;
+    // Decides when updates are due, used by the simulation thread
+    private final FixedStepClock mClock =
+            new FixedStepClock(1_000_000_000L / TICKS_PER_SECOND, MAX_CATCH_UP_TICKS);
     // Is the game currently playing and or paused?
     private volatile boolean mPlaying = false;
     private volatile boolean mPaused = true;
-    private boolean pausedByButton = false;
+    private volatile boolean pausedByButton = false;
+    // Set from any thread, the simulation thread starts the new game
+    private final AtomicBoolean mNewGameRequested = new AtomicBoolean();
     // for playing sound effects
     private SoundPool mSP;
-    private int mEat_ID = -1;
-    private int mCrashID = -1;
 
-    // The size in segments of the playable area
+    // Decodes the images and loads the sounds in the background
+    private AssetLoader mLoader;
+    // The size of the surface, 0 while there isn't one
+    private int mSurfaceWidth;
+    private int mSurfaceHeight;
+    // When this game was created and whether the first
+    // real frame has been drawn, for the start up time log
+    private final long mCreatedMillis = SystemClock.uptimeMillis();
+    private boolean mFirstFrameDrawn = false;
+
+    // The size in segments of the area on screen
     private final int NUM_BLOCKS_WIDE = 40;
     private int mNumBlocksHigh;
 
-    // How many points does the player have
-    private int mScore;
+    // The board can be bigger than the screen, up to this many cells a side
+    static final int MAX_BOARD_SIZE = 1000;
+    // Which part of the board is on screen
+    private Camera mCamera;
+
+    // The game rules, with no Android in them
+    // Only the simulation thread touches these
+    private SnakeSimulation mSim;
+    private boolean mGameStarted = false;
+
+    // Each tick is copied into a snapshot for the render thread
+    private final SnapshotExchange mSnapshots = new SnapshotExchange();
+    // The phase in the last snapshot, -1 for none yet
+    private int mPublishedPhase = -1;
+
+    // Turns from the UI thread, applied one per tick on the game thread
+    private final InputQueue mInput = new InputQueue(16);
+
+    // Every game is recorded so it can be played back exactly
+    // Each one gets a new seed for where the apples go
+    private ReplayRecorder mReplay;
+    private final Random mSeeds = new Random();
+
+    // The game running when the app was left, carried on when it's back
+    // A restored game isn't recorded, its seed and turns are gone
+    private GameStateStore mStateStore;
+    // Set when a game was left part way, the next tap
+    // carries on with it instead of starting a new one
+    private volatile boolean mSuspended = false;
+
+    // Steers instead of the player in attract mode and soak tests
+    // Null when the player is steering
+    private Autopilot mAutopilot;
+
+    // Time from a tap to the tick that applied it
+    private long mInputLatencyTotal;
+    private long mInputLatencyMax;
+    private int mInputLatencyCount;
+
+    // Where the pause button is on screen
+    // Worked out when the surface changes
+    private final Rect mPauseButton = new Rect();
 
     // Objects for drawing
     private Canvas mCanvas;
     private SurfaceHolder mSurfaceHolder;
     private Paint mPaint;
 
+    // Drawn instead of the background image at the lowest quality
+    private static final int PLAIN_BACKGROUND = Color.LTGRAY;
+
+    // Determine the text size of the score
+    private static final float SCORE_TEXT_SIZE = 120;
+
+    // One paint per text style, set up once
+    // so drawing text never changes or creates a paint
+    private Paint mMessagePaint;
+    private Paint mPausedPaint;
+
+    // Drawn once into the static layer
+    private Credits mCredits;
+    // The score and pause button, redrawn only when they change
+    private Hud mHud;
+
     // A snake ssss
     private Snake mSnake;
     // And an apple
     private Apple mApple;
-    private Bitmap mBitmapPause;
-    private Bitmap mBackgroundBitmap;
-    private boolean mGameStarted = false;
+    // Every scaled image, built once per surface size
+    private RenderAssetCache mAssets;
+    // Where the bitmaps come from, shared with later games
+    private final BitmapPool mBitmapPool = BitmapPool.getShared();
 
 
     // This is the constructor method that gets called
     // from SnakeActivity
 
-    public SnakeGame(Context context, Point size) {
+    // board is the size of the board in cells,
+    // 0 by 0 for a board that just fills the screen
+    // autopilot plays by itself, starting straight away
+    public SnakeGame(Context context, Point size, Point board, boolean autopilot) {
         super(context);
         int blocksize = 50;
         // Work out how many pixels each block is
@@ -66,6 +191,12 @@ class SnakeGame extends SurfaceView implements Runnable {
         // How many blocks of the same size will fit into the height
         mNumBlocksHigh = size.y / blockSize;
 
+        // The board size doesn't change the block size,
+        // a bigger board just scrolls
+        int boardWidth = board.x > 0 ? Math.min(board.x, MAX_BOARD_SIZE) : NUM_BLOCKS_WIDE;
+        int boardHeight = board.y > 0 ? Math.min(board.y, MAX_BOARD_SIZE) : mNumBlocksHigh;
+        mCamera = new Camera(boardWidth, boardHeight, blockSize);
+
         // Initialize the SoundPool
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             AudioAttributes audioAttributes = new AudioAttributes.Builder()
@@ -80,207 +211,475 @@ class SnakeGame extends SurfaceView implements Runnable {
         } else {
             mSP = new SoundPool(5, AudioManager.STREAM_MUSIC, 0);
         }
-        try {
-            AssetManager assetManager = context.getAssets();
-            AssetFileDescriptor descriptor;
-
-            // Prepare the sounds in memory
-            descriptor = assetManager.openFd("get_apple.ogg");
-            mEat_ID = mSP.load(descriptor, 0);
-
-            descriptor = assetManager.openFd("snake_death.ogg");
-            mCrashID = mSP.load(descriptor, 0);
-
-        } catch (IOException e) {
-            // Error
-        }
 
         // Initialize the drawing objects
         mSurfaceHolder = getHolder();
+        mSurfaceHolder.addCallback(this);
         mPaint = new Paint();
+        mGovernor = new QualityGovernor(context);
+
+        // All the text is bold, make the typeface once
+        Typeface bold = Typeface.create(Typeface.DEFAULT, Typeface.BOLD);
+        mCredits = new Credits(createTextPaint(bold, 40));
+        mHud = new Hud(createTextPaint(bold, SCORE_TEXT_SIZE), mPauseButton, mBitmapPool);
+        mMessagePaint = createTextPaint(bold, 150);
+        mPausedPaint = createTextPaint(bold, 200);
+
+        // Decode the images and sounds on other threads
+        // The images get scaled once they arrive and the surface has a size
+        mAssets = new RenderAssetCache(blockSize, mBitmapPool);
+        mLoader = new AssetLoader(context, mSP, mBitmapPool);
+        mLoader.start(blockSize, size.x, size.y, new Runnable() {
+            @Override
+            public void run() {
+                mAssets.setSources(mLoader);
+                rebuildLayers();
+            }
+        });
+
+        // The simulation the snapshots are taken from
+        mSim = new SnakeSimulation(boardWidth, boardHeight, Snake.eatReach(blockSize));
+        mSim.setTraceRecorder(mTrace);
+        mReplay = new ReplayRecorder(new File(context.getFilesDir(), "replays"));
+        mStateStore = new GameStateStore(new File(context.getFilesDir(), "game-state.snks"));
+        // The constructor runs on the UI thread
+        mTrace.nameCurrentThread();
+        if (autopilot) {
+            mAutopilot = new Autopilot(mSim);
+            mNewGameRequested.set(true);
+            mPaused = false;
+        } else if (mStateStore.restore(mSim)) {
+            // The simulation thread isn't running yet, so the first
+            // frame it publishes is the restored game, paused
+            mGameStarted = true;
+            mSuspended = true;
+        }
 
         // Call the constructors of our two game objects
-        mApple = new Apple(context, new Point(NUM_BLOCKS_WIDE, mNumBlocksHigh), blockSize);
-        mSnake = new Snake(context, new Point(NUM_BLOCKS_WIDE, mNumBlocksHigh), blockSize);
+        mApple = new Apple(mAssets, mCamera, blockSize);
+        mSnake = new Snake(mAssets, mCamera, new Point(NUM_BLOCKS_WIDE, mNumBlocksHigh), blockSize);
+
+    }
 
-        mBitmapPause = BitmapFactory.decodeResource(getResources(), R.drawable.pause_icon);
-        mBackgroundBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.background_image);
 
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        // Nothing to do until we know the size
     }
 
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        mSurfaceWidth = width;
+        mSurfaceHeight = height;
+        rebuildLayers();
+    }
+
+    // Scale everything for the surface, on the UI thread
+    // Waits for both a surface size and the decoded images
+    private void rebuildLayers() {
+        int width = mSurfaceWidth;
+        int height = mSurfaceHeight;
+        if (width == 0 || !mAssets.hasSources()) {
+            return;
+        }
+
+        // Not while a frame is being drawn
+        synchronized (mAssets) {
+            // Scale everything for the new surface size
+            mAssets.rebuild(width, height, mCredits);
 
-    // Called to start a new game
+            // Put the pause button in the top right corner
+            int margin = 100; // Margin from top-right corner
+            Rect pauseIcon = mAssets.getSpriteRect(RenderAssetCache.SPRITE_PAUSE);
+            mPauseButton.set(width - pauseIcon.width() - margin, margin,
+                    width - margin, margin + pauseIcon.height());
+
+            mHud.resize(width);
+            mCamera.setViewSize(width, height);
+        }
+        Log.d(TAG, "Render layers rebuilt for " + width + "x" + height
+                + ", holding " + (mAssets.getByteCount() + mHud.getByteCount()) + " bytes");
+        mBitmapPool.logStats("Layers rebuilt");
+
+        // Show it straight away, even if paused
+        requestFrame();
+    }
 
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        mSurfaceWidth = 0;
+        mSurfaceHeight = 0;
+
+        // Free the scaled images, the next surface may be a different size
+        synchronized (mAssets) {
+            mAssets.release();
+            mHud.release();
+        }
+    }
 
 
     // Handles the game loop
+    // Runs on the simulation thread, ticking at a steady rate
+    // however long the render thread takes over a frame
     @Override
     public void run() {
+        mTrace.nameCurrentThread();
+        mClock.reset(System.nanoTime());
         while (mPlaying) {
-            if (!mPaused) {
-                // Update 10 times a second
-                if (updateRequired()) {
+            // Read this before the new game flag,
+            // a new game is always asked for before unpausing
+            boolean paused = mPaused;
+            boolean changed = false;
+
+            if (mNewGameRequested.getAndSet(false)) {
+                startNewGame();
+                changed = true;
+            }
+
+            boolean ticked = false;
+            if (!paused) {
+                // Run however many fixed ticks are due
+                int ticks = mClock.advance(System.nanoTime());
+                if (ticks > 0) {
+                    mMetrics.recordTicks(ticks, mClock.getLateNanos(), mClock.getDroppedSteps());
+                }
+                for (int i = 0; i < ticks && !mPaused; i++) {
+                    long start = mTrace.begin(GameTrace.TICK);
                     update();
+                    mTrace.end(GameTrace.TICK, start);
+                    mMetrics.record(FrameMetrics.PHASE_UPDATE, System.nanoTime() - start);
                 }
+                ticked = ticks > 0;
+            }
+
+            // Hand the result to the render thread
+            int phase = getPhase();
+            if (ticked || changed || phase != mPublishedPhase) {
+                publish(phase, ticked);
             }
 
-            draw();
+            if (mPaused) {
+                // Forget turns made before the pause and sleep until
+                // a touch or pause() wakes us, then don't tick the time
+                // spent asleep
+                mInput.clear();
+                LockSupport.park(this);
+                mClock.reset(System.nanoTime());
+            } else {
+                // Sleep until the next tick is due
+                LockSupport.parkNanos(this, mClock.getNanosUntilNextStep());
+            }
+        }
+
+        // Keep the game so far if the process is killed in the background
+        mReplay.flush();
+        if (mAutopilot == null) {
+            if (mGameStarted && !mSim.isOver()) {
+                mStateStore.saveAsync(mSim);
+            } else {
+                mStateStore.clearAsync();
+            }
         }
     }
 
+    // Where the game is up to, for the snapshot
+    private int getPhase() {
+        if (!mGameStarted) {
+            return GameSnapshot.PHASE_READY;
+        } else if (mSim.isOver()) {
+            return GameSnapshot.PHASE_OVER;
+        } else if (mPaused) {
+            return GameSnapshot.PHASE_PAUSED;
+        }
+        return GameSnapshot.PHASE_RUNNING;
+    }
 
-    // Check to see if it is time for an update
-    public boolean updateRequired() {
+    // Copy the simulation into a snapshot and swap it in for the render thread
+    private void publish(int phase, boolean ticked) {
+        long now = System.nanoTime();
+        // When nothing moved, date it a tick back so it's drawn where it is
+        // rather than sliding over the last move again
+        long tickNanos = ticked ? now : now - mClock.getStepNanos();
+        mSnapshots.getBack().capture(mSim, phase, tickNanos);
+        mSnapshots.publish();
+        mPublishedPhase = phase;
+
+        // Wakes the render thread if it was idle
+        requestFrame();
+    }
 
-        // Run at 10 frames per second
-        final long TARGET_FPS = 10;
-        // There are 1000 milliseconds in a second
-        final long MILLIS_PER_SECOND = 1000;
+    // Draws the newest snapshot
+    // Called by the Choreographer on the render thread once per vsync
+    // while playing, and once per requestFrame() otherwise
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameScheduled.set(false);
+        if (!mPlaying) {
+            return;
+        }
 
-        // Are we due to update the frame
-        if (mNextFrameTime <= System.currentTimeMillis()) {
-            // Tenth of a second has passed
+        GameSnapshot frame = mSnapshots.acquire();
+        boolean running = frame.getPhase() == GameSnapshot.PHASE_RUNNING;
 
-            // Setup when the next update will be triggered
-            mNextFrameTime = System.currentTimeMillis()
-                    + MILLIS_PER_SECOND / TARGET_FPS;
+        if (running && mGovernor.skipFrame()) {
+            // Drawing at half rate, wait for the next vsync
+            if (mFrameScheduled.compareAndSet(false, true)) {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+            return;
+        }
 
-            // Return true so that the update and draw
-            // methods are executed
-            return true;
+        // Slide the snake between ticks unless it's standing still
+        float alpha = 1;
+        if (running) {
+            endIdle();
+            alpha = (frameTimeNanos - frame.getTickNanos()) / (float) mClock.getStepNanos();
+            alpha = Math.max(0, Math.min(1, alpha));
+        }
+        mSnake.setFrame(frame, alpha);
+        mApple.setFrame(frame);
+        long drawStart = mTrace.begin(GameTrace.FRAME);
+        draw(frame);
+        mTrace.end(GameTrace.FRAME, drawStart);
+        if (running) {
+            mGovernor.onFrameDrawn(frameTimeNanos, System.nanoTime() - drawStart);
         }
 
-        return false;
+        if (!running) {
+            // The screen won't change until something happens,
+            // sleep until requestFrame() is called
+            mGovernor.onIdle();
+            startIdle();
+        } else if (mFrameScheduled.compareAndSet(false, true)) {
+            // Ask for the next frame
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    // Draw one more frame, from any thread
+    // Used for new snapshots, touches, surface changes and pausing or resuming
+    void requestFrame() {
+        Handler handler = mHandler;
+        if (handler != null && mFrameScheduled.compareAndSet(false, true)) {
+            handler.post(mScheduleFrame);
+        }
+    }
+
+    private void startIdle() {
+        if (mIdleStartWallMillis < 0) {
+            mIdleStartWallMillis = SystemClock.elapsedRealtime();
+            mIdleStartCpuMillis = Process.getElapsedCpuTime();
+        }
+    }
+
+    // Report how much CPU the process used while it was idle
+    private void endIdle() {
+        if (mIdleStartWallMillis >= 0) {
+            long wall = SystemClock.elapsedRealtime() - mIdleStartWallMillis;
+            long cpu = Process.getElapsedCpuTime() - mIdleStartCpuMillis;
+            Log.d(TAG, "Idle for " + wall + " ms using " + cpu + " ms of CPU ("
+                    + (wall > 0 ? 100 * cpu / wall : 0) + "%)");
+            mIdleStartWallMillis = -1;
+        }
     }
 
 
     // Update all the game objects
+    // Runs on the simulation thread
     public void update() {
 
-        // Move the snake
-        mSnake.move();
-
-        // Did the head of the snake eat the apple?
-        if (mSnake.checkCollision(mApple.getLocation())) {
-            // This reminds me of Edge of Tomorrow.
-            // One day the apple will be ready!
-            mApple.spawn();
+        Turn turn;
+        if (mAutopilot != null) {
+            // Planned for this tick, so there's no input latency to count
+            turn = mAutopilot.plan();
+        } else {
+            // Apply the oldest waiting turn, if there is one
+            turn = mInput.poll();
+            if (turn == null) {
+                turn = Turn.NONE;
+            } else {
+                long latency = SystemClock.uptimeMillis() - mInput.getLastTime();
+                mInputLatencyTotal += latency;
+                mInputLatencyMax = Math.max(mInputLatencyMax, latency);
+                mInputLatencyCount++;
+            }
+        }
 
-            // Add to  mScore
-            mScore = mScore + 1;
+        // Move the snake and see what happened
+        mReplay.turn(mSim, turn);
+        int events = mSim.tick(turn);
+        mReplay.ticked(mSim);
 
+        // Did the head of the snake eat the apple?
+        if ((events & SnakeSimulation.EVENT_ATE) != 0) {
             // Play a sound
-            mSP.play(mEat_ID, 1, 1, 0, 0, 1);
+            playSound(mLoader.getEatSound());
         }
 
         // Did the snake die?
-        if (mSnake.detectDeath()) {
+        if ((events & SnakeSimulation.EVENT_DIED) != 0) {
             // Pause the game ready to start again
-            mSP.play(mCrashID, 1, 1, 0, 0, 1);
+            playSound(mLoader.getCrashSound());
+
+            reportInputLatency();
+            endGame();
+        } else if ((events & SnakeSimulation.EVENT_BOARD_FULL) != 0) {
+            // The snake fills the board, nothing left to eat
+            endGame();
+        } else if (mAutopilot != null && mAutopilot.isStuck()) {
+            // Going round in circles, start again
+            // The replay is closed without an end, the game never ended
+            Log.d(TAG, "Autopilot stuck at score " + mSim.getScore() + ", starting again");
+            startNewGame();
+        }
+
+    }
 
+
+    // The autopilot keeps playing, otherwise wait for a tap
+    private void endGame() {
+        mReplay.end(mSim);
+        if (mAutopilot != null) {
+            startNewGame();
+        } else {
             mPaused = true;
         }
+    }
 
+    // Sounds that haven't finished loading are skipped
+    private void playSound(int soundId) {
+        if (soundId != -1) {
+            mSP.play(soundId, 1, 1, 0, 0, 1);
+        }
     }
 
+    // Log how quickly taps turned into moves this game
+    private void reportInputLatency() {
+        if (mInputLatencyCount > 0) {
+            Log.d(TAG, "Input to tick latency over " + mInputLatencyCount + " turns: average "
+                    + mInputLatencyTotal / mInputLatencyCount + " ms, max "
+                    + mInputLatencyMax + " ms");
+        }
+        mInputLatencyTotal = 0;
+        mInputLatencyMax = 0;
+        mInputLatencyCount = 0;
+    }
 
-    // Called to start a new game
+    // Called to start a new game, from any thread
+    // The simulation thread starts it before its next tick
     public void newGame() {
-        // reset the snake
-        mSnake.reset(NUM_BLOCKS_WIDE, mNumBlocksHigh);
-
-        // Get the apple ready for dinner
-        mApple.spawn();
-
-        // Reset the mScore
-        mScore = 0;
+        mNewGameRequested.set(true);
+        wakeSimulation();
+    }
 
-        // Setup mNextFrameTime so an update can triggered
-        mNextFrameTime = System.currentTimeMillis();
+    // Runs on the simulation thread
+    private void startNewGame() {
+        // reset the snake, get the apple ready
+        // for dinner and reset the score
+        long seed = mSeeds.nextLong();
+        mSim.setSeed(seed);
+        mSim.newGame();
+        mReplay.start(mSim, seed);
 
         // Set the game started flag to true
         mGameStarted = true;
     }
 
+    // Let the simulation thread see a change straight away
+    private void wakeSimulation() {
+        Thread thread = mSimThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
     // Do all the drawing
-    public void draw() {
-        if (mSurfaceHolder.getSurface().isValid()) {
-            mCanvas = mSurfaceHolder.lockCanvas();
-
-            // Clear the canvas
-            mCanvas.drawColor(Color.BLACK);
-
-            // Calculate the scale factors for stretching the background image
-            float scaleX = (float) mCanvas.getWidth() / mBackgroundBitmap.getWidth();
-            float scaleY = (float) mCanvas.getHeight() / mBackgroundBitmap.getHeight();
-
-            // Create a Matrix for scaling
-            android.graphics.Matrix matrix = new android.graphics.Matrix();
-            matrix.setScale(scaleX, scaleY);
-
-            // Apply the scale to the background bitmap
-            Bitmap scaledBackgroundBitmap = Bitmap.createBitmap(mBackgroundBitmap, 0, 0, mBackgroundBitmap.getWidth(), mBackgroundBitmap.getHeight(), matrix, true);
-
-            // Draw the scaled background bitmap
-            mCanvas.drawBitmap(scaledBackgroundBitmap, 0, 0, null);
-
-            // Determine the text size of the score
-            float scoreTextSize = 120;
-
-            // Draw the score
-            mPaint.setColor(Color.BLACK);
-            mPaint.setTextSize(scoreTextSize);
-            mCanvas.drawText("" + mScore, 50, scoreTextSize, mPaint);
-
-            // Draw the apple and the snake
-            mApple.draw(mCanvas, mPaint);
-            mSnake.draw(mCanvas, mPaint);
-
-            // Draw names in the top right corner
-            mPaint.setTextSize(40);
-            mCanvas.drawText("HORMOZ HALIMI", mCanvas.getWidth() - 300, 50, mPaint);
-            mCanvas.drawText("Rodrigo Guzman", mCanvas.getWidth() - 300, 100, mPaint);
-            mCanvas.drawText("Dagem Kebede", mCanvas.getWidth() - 300, 150, mPaint);
-
-            // Draw the pause button
-            if (!pausedByButton) {
-                // Calculate the scale to fit the icon based on the score text size
-                float iconScale = scoreTextSize / (mBitmapPause.getWidth() * 2 ); // Smaller scale factor
-
-                // Scale the pause icon
-                Bitmap scaledBitmap = Bitmap.createScaledBitmap(mBitmapPause,
-                        (int) (mBitmapPause.getWidth() * iconScale),
-                        (int) (mBitmapPause.getHeight() * iconScale),
-                        true);
-
-                // Adjust the coordinates to position the pause button
-                int margin = 100; // Margin from top-right corner
-                int iconX = mCanvas.getWidth() - scaledBitmap.getWidth() - margin; // X-coordinate
-                int iconY = margin; // Y-coordinate
-                mCanvas.drawBitmap(scaledBitmap, iconX, iconY, mPaint);
+    public void draw(GameSnapshot frame) {
+        // Hold the cache so it can't be freed or rebuilt mid-frame
+        synchronized (mAssets) {
+            if (mSurfaceHolder.getSurface().isValid() && mAssets.isReady()) {
+                long start = System.nanoTime();
+                drawFrame(frame);
+                mMetrics.record(FrameMetrics.PHASE_DRAW, System.nanoTime() - start);
+                if (!mFirstFrameDrawn) {
+                    mFirstFrameDrawn = true;
+                    long now = SystemClock.uptimeMillis();
+                    Log.d(TAG, "First frame drawn " + (now - mCreatedMillis)
+                            + " ms after the game was created, "
+                            + (now - Process.getStartUptimeMillis())
+                            + " ms after the process started");
+                }
             }
+        }
+    }
 
-            // Check if the game is paused and draw the appropriate text
-            if (!mGameStarted) {
-                mPaint.setColor(Color.BLACK);
-                mPaint.setTextSize(150); // Adjust the text size as needed
-                mPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-                mCanvas.drawText("Tap to play", mCanvas.getWidth() / 2 - 300, mCanvas.getHeight() / 2, mPaint);
-            } else if (mSnake.detectDeath()) {
-                mPaint.setColor(Color.BLACK);
-                mPaint.setTextSize(150); // Adjust the text size as needed
-                mPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-                mCanvas.drawText("Tap to Restart", mCanvas.getWidth() / 2 - 450, mCanvas.getHeight() / 2, mPaint);
-            } else if (mPaused) {
-                mPaint.setColor(Color.BLACK);
-                mPaint.setTextSize(200); // Adjust the text size as needed
-                mPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-                mCanvas.drawText("Paused", mCanvas.getWidth() / 2 - 400, mCanvas.getHeight() / 2, mPaint);
+    // Draw one frame, the caller has checked the surface is valid
+    private void drawFrame(GameSnapshot frame) {
+        long start = mTrace.begin(GameTrace.LOCK_CANVAS);
+        mCanvas = mSurfaceHolder.lockCanvas();
+        mTrace.end(GameTrace.LOCK_CANVAS, start);
+        mMetrics.record(FrameMetrics.PHASE_LOCK_CANVAS, System.nanoTime() - start);
+
+        // Draw the background and names, composed once per surface size
+        // When the device is struggling, just the names on a plain colour
+        start = mTrace.begin(GameTrace.BACKGROUND);
+        if (mGovernor.isBackgroundOn()) {
+            mCanvas.drawBitmap(mAssets.getStaticLayer(), 0, 0, null);
+        } else {
+            mCanvas.drawColor(PLAIN_BACKGROUND);
+            mCredits.draw(mCanvas, null);
+        }
+        mTrace.end(GameTrace.BACKGROUND, start);
+        mPaint.setFilterBitmap(mGovernor.isFilteringOn());
+
+        // Keep the head in the middle of the screen
+        // and draw the board from where the camera is
+        mCamera.follow(mSnake.getHeadDrawX(), mSnake.getHeadDrawY());
+        mCanvas.save();
+        mCanvas.translate(-mCamera.getX(), -mCamera.getY());
+
+        // Draw the apple and the snake
+        // Anything the camera can't see is skipped
+        start = mTrace.begin(GameTrace.APPLE);
+        mApple.draw(mCanvas, mPaint);
+        mTrace.end(GameTrace.APPLE, start);
+        start = mTrace.begin(GameTrace.SNAKE);
+        mSnake.draw(mCanvas, mPaint);
+        mTrace.end(GameTrace.SNAKE, start);
+        mCanvas.restore();
+
+        // Draw the score and the pause button
+        // The layer is only redrawn if one of them changed
+        start = mTrace.begin(GameTrace.HUD);
+        mHud.update(frame.getScore(), !pausedByButton, mAssets.getAtlas(),
+                mAssets.getSpriteRect(RenderAssetCache.SPRITE_PAUSE));
+        mHud.draw(mCanvas, null);
+        mTrace.end(GameTrace.HUD, start);
+
+        // Check if the game is paused and draw the appropriate text
+        if (frame.getPhase() == GameSnapshot.PHASE_READY) {
+            mCanvas.drawText("Tap to play", mCanvas.getWidth() / 2 - 300, mCanvas.getHeight() / 2, mMessagePaint);
+        } else if (frame.getPhase() == GameSnapshot.PHASE_OVER) {
+            mCanvas.drawText("Tap to Restart", mCanvas.getWidth() / 2 - 450, mCanvas.getHeight() / 2, mMessagePaint);
+        } else if (frame.getPhase() == GameSnapshot.PHASE_PAUSED) {
+            mCanvas.drawText("Paused", mCanvas.getWidth() / 2 - 400, mCanvas.getHeight() / 2, mPausedPaint);
 
-            }
+        }
 
-            mSurfaceHolder.unlockCanvasAndPost(mCanvas);
+        if (mShowMetrics) {
+            mMetricsOverlay.draw(mCanvas, null);
         }
+
+        start = mTrace.begin(GameTrace.POST_CANVAS);
+        mSurfaceHolder.unlockCanvasAndPost(mCanvas);
+        mTrace.end(GameTrace.POST_CANVAS, start);
+        mMetrics.record(FrameMetrics.PHASE_POST_CANVAS, System.nanoTime() - start);
+    }
+
+    // Show or hide the frame metrics, from any thread
+    void setMetricsShown(boolean shown) {
+        mShowMetrics = shown;
+        requestFrame();
     }
 
 
@@ -292,78 +691,158 @@ class SnakeGame extends SurfaceView implements Runnable {
 
 
 
+    // A black text paint with the given size
+    private static Paint createTextPaint(Typeface typeface, float textSize) {
+        Paint paint = new Paint();
+        paint.setColor(Color.BLACK);
+        paint.setTypeface(typeface);
+        paint.setTextSize(textSize);
+        return paint;
+    }
+
     // Modify onTouchEvent() method to handle pause button
 
     @Override
     public boolean onTouchEvent(MotionEvent motionEvent) {
-        // Calculate the scaled icon size and position based on the draw method logic
-        float scoreTextSize = 120;
-        float iconScale = scoreTextSize / (mBitmapPause.getWidth() * 2); // Assuming scoreTextSize is used for scaling
-        int scaledIconWidth = (int) (mBitmapPause.getWidth() * iconScale);
-        int scaledIconHeight = (int) (mBitmapPause.getHeight() * iconScale);
-        int margin = 100; // Margin from top-right corner
-        int iconX = mCanvas.getWidth() - scaledIconWidth - margin; // X-coordinate
-        int iconY = margin; // Y-coordinate
-
+        long start = mTrace.begin(GameTrace.TOUCH);
         switch (motionEvent.getAction() & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_POINTER_DOWN:
+                mMaxPointers = Math.max(mMaxPointers, motionEvent.getPointerCount());
+                break;
             case MotionEvent.ACTION_DOWN:
+                mMaxPointers = 1;
                 // Check if the touch started within the bounds of the scaled pause button icon
-                if (motionEvent.getX() > iconX &&
-                        motionEvent.getX() < iconX + scaledIconWidth &&
-                        motionEvent.getY() > iconY &&  // Ensure touch is below the pause button
-                        motionEvent.getY() < iconY + scaledIconHeight) {
+                if (isOnPauseButton(motionEvent)) {
                     // Set a flag to indicate touch started on the pause button
                     pausedByButton = true;
                 }
                 break;
             case MotionEvent.ACTION_UP:
+                if (mMaxPointers >= 3) {
+                    // A three finger tap writes out the trace
+                    GameTrace.writeAsync(mTrace, new File(getContext().getFilesDir(), "traces"));
+                    pausedByButton = false;
+                    break;
+                } else if (mMaxPointers == 2) {
+                    // A two finger tap shows or hides the frame metrics
+                    setMetricsShown(!mShowMetrics);
+                    pausedByButton = false;
+                    break;
+                }
                 // Check if the touch ended within the bounds of the scaled pause button icon and if it started on the pause button
-                if (motionEvent.getX() > iconX &&
-                        motionEvent.getX() < iconX + scaledIconWidth &&
-                        motionEvent.getY() > iconY &&  // Ensure touch is below the pause button
-                        motionEvent.getY() < iconY + scaledIconHeight &&
-                        pausedByButton) {
+                if (isOnPauseButton(motionEvent) && pausedByButton) {
                     // Toggle pause state only if the touch started and ended on the pause button
                     mPaused = !mPaused;
+                    mSuspended = false;
                 } else if (mPaused && !pausedByButton) {
-                    // Resume the game and start a new game if it was paused and not paused by button click
+                    if (mSuspended) {
+                        // Carry on with the game the app was left in
+                        mSuspended = false;
+                    } else {
+                        // Start a new game and then resume it if it was paused and not paused by button click
+                        newGame();
+                    }
                     mPaused = false;
-                    newGame();
-                } else {
-                    // Let the Snake class handle the input
-                    mSnake.switchHeading(motionEvent);
+                } else if (mAutopilot == null) {
+                    // Queue the turn for the simulation thread
+                    mInput.offer(mSnake.getTurn(motionEvent), motionEvent.getEventTime());
                 }
                 // Reset the flag indicating touch by the button
                 pausedByButton = false;
+                wakeSimulation();
                 break;
         }
+
+        // Touches can change what's on screen, even when paused
+        requestFrame();
+        mTrace.end(GameTrace.TOUCH, start);
         return true;
     }
 
+    // Is the touch inside the pause button?
+    // Empty until the surface has a size
+    private boolean isOnPauseButton(MotionEvent motionEvent) {
+        return motionEvent.getX() > mPauseButton.left &&
+                motionEvent.getX() < mPauseButton.right &&
+                motionEvent.getY() > mPauseButton.top &&
+                motionEvent.getY() < mPauseButton.bottom;
+    }
+
 
 
 
 
 
 
-    // Stop the thread
+    // Stop the threads
     public void pause() {
         mPlaying = false;
-        if (!pausedByButton) {
-            // Reset the game only if it's not paused by a button click
-            newGame();
+
+        // The simulation loop ends once it wakes and sees mPlaying is false
+        // and saves the game on its way out
+        wakeSimulation();
+        try {
+            mSimThread.join();
+        } catch (InterruptedException e) {
+            // Error
+        }
+        mSimThread = null;
+
+        // Keep a game part way through paused where it is,
+        // the next tap carries on with it
+        if (mAutopilot == null && mGameStarted && !mSim.isOver()) {
+            mPaused = true;
+            mSuspended = true;
         }
+
+        mGovernor.stop();
+
+        // doFrame stops asking for frames once mPlaying is false
+        mHandler = null;
+        mThread.quitSafely();
         try {
             mThread.join();
         } catch (InterruptedException e) {
             // Error
         }
+
+        // Both threads have stopped, so the metrics can be copied and written out
+        mMetrics.dumpAsync(new File(getContext().getFilesDir(), "metrics"));
+    }
+
+    // Called when the activity is destroyed
+    // Hands every bitmap back for the next game to reuse
+    public void release() {
+        synchronized (mAssets) {
+            mAssets.releaseSources();
+            mHud.release();
+        }
+        mSP.release();
+        // The simulation thread has stopped, so it's safe to close here
+        mReplay.close();
     }
 
     // resume() method
     public void resume() {
         mPlaying = true;
-        mThread = new Thread(this);
+        mGovernor.start();
+        mThread = new HandlerThread("SnakeGame");
         mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mTrace.nameCurrentThread();
+            }
+        });
+
+        // Draw the first frame, which keeps going if the game is running
+        mFrameScheduled.set(false);
+        requestFrame();
+
+        // Start ticking, the first snapshot wakes the render thread again
+        mPublishedPhase = -1;
+        mSimThread = new Thread(this, "SnakeSimulation");
+        mSimThread.start();
     }
 }
@@ -0,0 +1,123 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.os.Build;
+
+// Draws many copies of one atlas sprite with a single drawVertices call
+// instead of one drawBitmap per copy.
+// Canvases that can't draw textured vertices get one drawBitmap per copy
+class SpriteBatch {
+
+    // Sprites per drawVertices call
+    // Keeps the vertex count well inside what a short index can reach
+    private static final int MAX_SPRITES = 4096;
+
+    // Two floats per corner, four corners per sprite
+    private final float[] mVertices = new float[MAX_SPRITES * 8];
+    private final float[] mTexCoords = new float[MAX_SPRITES * 8];
+    // Two triangles per sprite
+    private final short[] mIndices = new short[MAX_SPRITES * 6];
+
+    // Textures the triangles from the atlas
+    private final Paint mPaint = new Paint();
+
+    // The atlas and sprite the texture coordinates were filled in for
+    private Bitmap mAtlas;
+    private final Rect mSprite = new Rect();
+
+    // The batch being built
+    private Canvas mCanvas;
+    private boolean mUseVertices;
+    private float mSize;
+    private int mCount;
+
+    // Used by the fallback path
+    private Paint mFallbackPaint;
+    private final RectF mDestination = new RectF();
+
+    SpriteBatch() {
+        for (int i = 0; i < MAX_SPRITES; i++) {
+            int corner = i * 4;
+            int index = i * 6;
+            mIndices[index] = (short) corner;
+            mIndices[index + 1] = (short) (corner + 1);
+            mIndices[index + 2] = (short) (corner + 2);
+            mIndices[index + 3] = (short) corner;
+            mIndices[index + 4] = (short) (corner + 2);
+            mIndices[index + 5] = (short) (corner + 3);
+        }
+    }
+
+    // Start a batch of the sprite at the given size on screen
+    void begin(Canvas canvas, Bitmap atlas, Rect sprite, float size, Paint paint) {
+        mCanvas = canvas;
+        mSize = size;
+        mCount = 0;
+        mFallbackPaint = paint;
+        // Filter like the paint we were given
+        mPaint.setFilterBitmap(paint.isFilterBitmap());
+
+        // Hardware canvases only learned to draw vertices in Android 10
+        mUseVertices = !canvas.isHardwareAccelerated()
+                || Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+
+        if (atlas != mAtlas || !sprite.equals(mSprite)) {
+            // Every sprite in the batch uses the same part of the atlas
+            mAtlas = atlas;
+            mSprite.set(sprite);
+            mPaint.setShader(new BitmapShader(atlas, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+            for (int i = 0; i < MAX_SPRITES; i++) {
+                setCorners(mTexCoords, i, sprite.left, sprite.top, sprite.right, sprite.bottom);
+            }
+        }
+    }
+
+    // Add one sprite with its top left corner at x, y
+    void add(float x, float y) {
+        if (!mUseVertices) {
+            mDestination.set(x, y, x + mSize, y + mSize);
+            mCanvas.drawBitmap(mAtlas, mSprite, mDestination, mFallbackPaint);
+            return;
+        }
+        setCorners(mVertices, mCount, x, y, x + mSize, y + mSize);
+        mCount++;
+        if (mCount == MAX_SPRITES) {
+            flush();
+        }
+    }
+
+    // Draw whatever is left in the batch
+    void end() {
+        flush();
+        mCanvas = null;
+        mFallbackPaint = null;
+    }
+
+    private void flush() {
+        if (mCount > 0) {
+            mCanvas.drawVertices(Canvas.VertexMode.TRIANGLES, mCount * 8,
+                    mVertices, 0, mTexCoords, 0, null, 0,
+                    mIndices, 0, mCount * 6, mPaint);
+            mCount = 0;
+        }
+    }
+
+    private static void setCorners(float[] array, int sprite, float left, float top,
+                                   float right, float bottom) {
+        int i = sprite * 8;
+        array[i] = left;
+        array[i + 1] = top;
+        array[i + 2] = right;
+        array[i + 3] = top;
+        array[i + 4] = right;
+        array[i + 5] = bottom;
+        array[i + 6] = left;
+        array[i + 7] = bottom;
+    }
+}
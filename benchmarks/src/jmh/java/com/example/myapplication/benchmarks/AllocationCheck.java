@@ -0,0 +1,173 @@
+package com.example.myapplication.benchmarks;
+
+import com.example.myapplication.core.Autopilot;
+import com.example.myapplication.core.HamiltonianCycle;
+import com.example.myapplication.core.InputQueue;
+import com.example.myapplication.core.ReplayWriter;
+import com.example.myapplication.core.SnakeSimulation;
+import com.example.myapplication.core.TraceRecorder;
+import com.example.myapplication.core.Turn;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// Fails the build if a steady-state game tick or an autopilot
+// plan allocates anything, on a board with a Hamiltonian cycle
+// and on one without, where planning runs the A* search.
+// Runs the same work as SnakeGame.update() on a plain JVM,
+// tracing every tick and recording it into a replay like the game does,
+// and asks the JVM how many bytes this thread allocated
+public class AllocationCheck {
+
+    private static final int BOARD_SIZE = 128;
+    // Odd both ways so there's no cycle, with the snake
+    // starting on the same cell as on BOARD_SIZE
+    private static final int NO_CYCLE_BOARD_SIZE = BOARD_SIZE + 1;
+    private static final int LENGTH = 1000;
+    private static final int WARM_UP_TICKS = 200_000;
+    private static final int MEASURED_TICKS = 100_000;
+    private static final int WARM_UP_PLANS = 20_000;
+    private static final int MEASURED_PLANS = 10_000;
+
+    // Roughly what the game's trace holds
+    private static final int TRACE_CAPACITY = 1 << 14;
+    private static final int REPLAY_BUFFER_SIZE = 4096;
+
+    public static void main(String[] args) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        SnakeSimulation sim = new SnakeSimulation(BOARD_SIZE, BOARD_SIZE, 0);
+        sim.setSeed(42);
+        sim.newGame();
+        HamiltonianCycle cycle = new HamiltonianCycle(BOARD_SIZE, BOARD_SIZE);
+        InputQueue input = new InputQueue(16);
+        TraceRecorder trace = new TraceRecorder(TRACE_CAPACITY);
+        int tickName = trace.addName("tick");
+        sim.setTraceRecorder(trace);
+        ReplayWriter replay = new ReplayWriter(new DiscardChannel(), REPLAY_BUFFER_SIZE);
+        replay.begin(42, BOARD_SIZE, BOARD_SIZE, 0);
+        Ticker ticker = new Ticker(sim, cycle, input, trace, tickName, replay);
+
+        for (int i = 1; i < LENGTH; i++) {
+            sim.getSnake().grow();
+        }
+
+        // Let the JIT settle before measuring
+        ticker.run(WARM_UP_TICKS);
+
+        // The first calls can allocate while loading classes
+        threads.getThreadAllocatedBytes(thread);
+        long before = threads.getThreadAllocatedBytes(thread);
+        ticker.run(MEASURED_TICKS);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        if (sim.isOver()) {
+            throw new IllegalStateException("The snake left the cycle, the check is broken");
+        }
+        if (allocated > 0) {
+            System.err.println(MEASURED_TICKS + " steady-state ticks allocated " + allocated + " bytes");
+            System.exit(1);
+        }
+        System.out.println(MEASURED_TICKS + " steady-state ticks allocated nothing");
+
+        // Plan the same position over and over, along the cycle
+        checkPlans(threads, thread, new Autopilot(sim), "autopilot plans");
+
+        // And with no cycle, the snake laid along the even board inside
+        SnakeSimulation noCycle = new SnakeSimulation(NO_CYCLE_BOARD_SIZE, NO_CYCLE_BOARD_SIZE, 0);
+        noCycle.setSeed(42);
+        noCycle.newGame();
+        for (int i = 1; i < LENGTH; i++) {
+            noCycle.getSnake().grow();
+        }
+        for (int i = 1; i < LENGTH; i++) {
+            noCycle.tick(cycle.steer(noCycle.getSnake()));
+        }
+        if (noCycle.isOver()) {
+            throw new IllegalStateException("The snake left the cycle, the check is broken");
+        }
+        checkPlans(threads, thread, new Autopilot(noCycle), "autopilot plans without a cycle");
+    }
+
+    // Exits if planning allocates once warmed up
+    private static void checkPlans(com.sun.management.ThreadMXBean threads, long thread,
+                                   Autopilot autopilot, String what) {
+        plan(autopilot, WARM_UP_PLANS);
+        long before = threads.getThreadAllocatedBytes(thread);
+        plan(autopilot, MEASURED_PLANS);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        if (allocated > 0) {
+            System.err.println(MEASURED_PLANS + " " + what + " allocated " + allocated + " bytes");
+            System.exit(1);
+        }
+        System.out.println(MEASURED_PLANS + " " + what + " allocated nothing");
+    }
+
+    private static void plan(Autopilot autopilot, int plans) {
+        for (int i = 0; i < plans; i++) {
+            autopilot.plan();
+        }
+    }
+
+    // The per-tick work of the game's simulation thread
+    private static class Ticker {
+        private final SnakeSimulation mSim;
+        private final HamiltonianCycle mCycle;
+        private final InputQueue mInput;
+        private final TraceRecorder mTrace;
+        private final int mTickName;
+        private final ReplayWriter mReplay;
+
+        Ticker(SnakeSimulation sim, HamiltonianCycle cycle, InputQueue input,
+               TraceRecorder trace, int tickName, ReplayWriter replay) {
+            mSim = sim;
+            mCycle = cycle;
+            mInput = input;
+            mTrace = trace;
+            mTickName = tickName;
+            mReplay = replay;
+        }
+
+        // Feed the turns through the input queue like the game does,
+        // tracing each tick and recording it with checkpoints
+        void run(int ticks) throws IOException {
+            for (int i = 0; i < ticks; i++) {
+                long start = mTrace.begin(mTickName);
+                mInput.offer(mCycle.steer(mSim.getSnake()), i);
+                Turn turn = mInput.poll();
+                if (turn == null) {
+                    turn = Turn.NONE;
+                }
+                mReplay.turn(mSim.getTicks() + 1, turn);
+                mSim.tick(turn);
+                if (mSim.getTicks() % ReplayWriter.CHECKPOINT_TICKS == 0) {
+                    mReplay.checkpoint(mSim.getTicks(), mSim.getStateHash());
+                }
+                mTrace.end(mTickName, start);
+            }
+        }
+    }
+
+    // Throws the replay away without allocating, like a file would
+    private static class DiscardChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int written = src.remaining();
+            src.position(src.limit());
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
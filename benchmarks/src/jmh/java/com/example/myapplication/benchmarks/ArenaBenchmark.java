@@ -0,0 +1,57 @@
+package com.example.myapplication.benchmarks;
+
+import com.example.myapplication.core.Arena;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Arena ticks per second as the number of snakes grows,
+// with the planning phase on one thread or on the common fork join pool
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ArenaBenchmark {
+
+    // Cells along each side of a square board
+    private static final int BOARD_SIZE = 512;
+
+    // Ticks run before measuring so the snakes have grown
+    private static final int WARM_UP_TICKS = 500;
+
+    // Snakes in the arena, with one apple each
+    @Param({"10", "100", "1000"})
+    public int snakes;
+
+    // Plan on the common pool instead of the benchmark thread
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private Arena mArena;
+    private ForkJoinPool mPool;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        mArena = new Arena(BOARD_SIZE, BOARD_SIZE, snakes, snakes);
+        mArena.reset(42);
+        mPool = parallel ? ForkJoinPool.commonPool() : null;
+        for (int i = 0; i < WARM_UP_TICKS; i++) {
+            mArena.tick(mPool);
+        }
+    }
+
+    @Benchmark
+    public long tick() {
+        mArena.tick(mPool);
+        return mArena.getTicks();
+    }
+}
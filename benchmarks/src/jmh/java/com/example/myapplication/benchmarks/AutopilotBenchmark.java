@@ -0,0 +1,70 @@
+package com.example.myapplication.benchmarks;
+
+import com.example.myapplication.core.Autopilot;
+import com.example.myapplication.core.HamiltonianCycle;
+import com.example.myapplication.core.SnakeBody;
+import com.example.myapplication.core.SnakeSimulation;
+import com.example.myapplication.core.Turn;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// How long the autopilot takes to plan one tick
+// as the board and the snake grow.
+// The snake is laid out along the Hamiltonian cycle like in
+// SnakeBenchmark, then the same position is planned over and over.
+// Even boards have a cycle, so the autopilot only looks along it.
+// Odd boards don't, so each plan runs the A* search to the apple
+// and checks the way back to the tail
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AutopilotBenchmark {
+
+    // Cells along each side of a square board
+    // A multiple of 4 so the starting cell is on the cycle heading right,
+    // or one more than that so there's no cycle but the snake starts
+    // in the same place and is laid along the even board inside it
+    @Param({"32", "33", "128", "129", "1024", "1025"})
+    public int boardSize;
+
+    // Segments in the snake before measuring
+    @Param({"1", "100", "1000"})
+    public int length;
+
+    private Autopilot mAutopilot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SnakeSimulation sim = new SnakeSimulation(boardSize, boardSize, 0);
+        sim.setSeed(42);
+        sim.newGame();
+        SnakeBody snake = sim.getSnake();
+        int cycleSize = boardSize & ~1;
+        HamiltonianCycle cycle = new HamiltonianCycle(cycleSize, cycleSize);
+
+        // Grow to the wanted length by keeping the tail still
+        for (int i = 1; i < length; i++) {
+            snake.grow();
+        }
+        for (int i = 1; i < length; i++) {
+            snake.turn(cycle.steer(snake));
+            snake.move();
+        }
+        mAutopilot = new Autopilot(sim);
+    }
+
+    @Benchmark
+    public Turn plan() {
+        return mAutopilot.plan();
+    }
+}
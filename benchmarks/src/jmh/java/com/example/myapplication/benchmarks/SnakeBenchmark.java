@@ -0,0 +1,119 @@
+package com.example.myapplication.benchmarks;
+
+import com.example.myapplication.core.AppleSpawner;
+import com.example.myapplication.core.CollisionGrid;
+import com.example.myapplication.core.CollisionHandler;
+import com.example.myapplication.core.HamiltonianCycle;
+import com.example.myapplication.core.SnakeBody;
+import com.example.myapplication.core.SnakeSimulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-tick cost of each snake operation as the snake grows.
+// The snake walks a Hamiltonian cycle so it never dies,
+// which keeps every iteration in the same steady state
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SnakeBenchmark {
+
+    // Cells along each side of a square board
+    // A multiple of 4 so the starting cell is on the cycle heading right
+    @Param({"128", "1024"})
+    public int boardSize;
+
+    // Segments in the snake before measuring
+    @Param({"1", "100", "1000", "10000"})
+    public int length;
+
+    private SnakeSimulation mSim;
+    private SnakeBody mSnake;
+    private AppleSpawner mApple;
+    private HamiltonianCycle mCycle;
+
+    // Set up like the simulation's, the head and the apple's cell
+    private CollisionGrid mCollisions;
+    private int mHeadHandle;
+    private int mHits;
+    // Which cell the head handle goes to next, 0 for the head, 1 for the apple
+    private int mCollisionTarget;
+    private final CollisionHandler mHandler = new CollisionHandler() {
+        @Override
+        public void onCollision(int mover, int other, int x, int y) {
+            mHits++;
+        }
+    };
+
+    // Rebuilt every iteration so growth from eating
+    // in update() doesn't carry over
+    @Setup(Level.Iteration)
+    public void setUp() {
+        mSim = new SnakeSimulation(boardSize, boardSize, 0);
+        mSim.setSeed(42);
+        mSim.newGame();
+        mSnake = mSim.getSnake();
+        mApple = mSim.getApple();
+        mCycle = new HamiltonianCycle(boardSize, boardSize);
+
+        // Grow to the wanted length by keeping the tail still
+        for (int i = 1; i < length; i++) {
+            mSnake.grow();
+        }
+        for (int i = 1; i < length; i++) {
+            step();
+        }
+
+        mCollisions = new CollisionGrid(boardSize, boardSize, 2);
+        mHeadHandle = mCollisions.add(SnakeSimulation.ENTITY_SNAKE, mSnake.getHeadX(), mSnake.getHeadY());
+        mCollisions.add(SnakeSimulation.ENTITY_APPLE, mApple.getX(), mApple.getY());
+    }
+
+    private void step() {
+        mSnake.turn(mCycle.steer(mSnake));
+        mSnake.move();
+    }
+
+    @Benchmark
+    public void move() {
+        step();
+    }
+
+    @Benchmark
+    public boolean detectDeath() {
+        return mSnake.isDead();
+    }
+
+    // Move the head handle and run the broad phase, like a tick does
+    // Every other call lands on the apple, so half of them hit
+    @Benchmark
+    public int checkCollision() {
+        mCollisionTarget ^= 1;
+        if (mCollisionTarget == 0) {
+            mCollisions.move(mHeadHandle, mSnake.getHeadX(), mSnake.getHeadY());
+        } else {
+            mCollisions.move(mHeadHandle, mApple.getX(), mApple.getY());
+        }
+        return mCollisions.detect(mHandler);
+    }
+
+    @Benchmark
+    public boolean spawn() {
+        return mApple.spawn();
+    }
+
+    // A whole tick, the same as SnakeGame.update() without the sounds
+    @Benchmark
+    public int update() {
+        return mSim.tick(mCycle.steer(mSnake));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.myapplication.core;
+
+// Where the apple is and where it goes next
+public class AppleSpawner {
+
+    // The board the snake is on
+    // Its free cells are the only places we spawn
+    private final OccupancyGrid mBoard;
+
+    // One generator for the whole game
+    // so spawns can be repeated from a seed
+    // and carried on from a saved game
+    private final SavableRandom mRandom = new SavableRandom();
+
+    // The location of the apple on the grid
+    // Off the board until the first spawn
+    private int mX = -10;
+    private int mY = -10;
+
+    public AppleSpawner(OccupancyGrid board) {
+        mBoard = board;
+    }
+
+    // Start the spawns again from a known point
+    public void setSeed(long seed) {
+        mRandom.setSeed(seed);
+    }
+
+    // Place the apple on a random free cell
+    // Returns false if the snake has filled the board
+    public boolean spawn() {
+        int cell = mBoard.getFreeCells().pick(mRandom);
+        if (cell < 0) {
+            // Nowhere left, hide the apple off the board
+            mX = -10;
+            mY = -10;
+            return false;
+        }
+
+        mX = cell % mBoard.getWidth();
+        mY = cell / mBoard.getWidth();
+        return true;
+    }
+
+    // Put the apple and the generator back the way they were saved
+    void restore(int x, int y, long randomState) {
+        mX = x;
+        mY = y;
+        mRandom.setState(randomState);
+    }
+
+    long getRandomState() {
+        return mRandom.getState();
+    }
+
+    // Is the apple somewhere the snake can reach?
+    public boolean isOnBoard() {
+        return mBoard.contains(mX, mY);
+    }
+
+    public int getX() {
+        return mX;
+    }
+
+    public int getY() {
+        return mY;
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.myapplication.core;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Lots of computer controlled snakes and apples on one board.
+// Used to stress test the engine and as a demo.
+// Each tick has two phases:
+// every snake plans its next move from the board as it was at the
+// start of the tick, in parallel on a fork join pool,
+// then the moves are resolved one snake at a time in a fixed order
+// so the result is the same however the planning was split up
+public class Arena {
+
+    // Snakes start on one cell and grow to this length
+    private static final int START_LENGTH = 3;
+    // Segments added for each apple eaten
+    private static final int GROWTH_PER_APPLE = 1;
+    // Snakes planned on one thread before the pool splits the work
+    private static final int PLAN_CHUNK = 32;
+    // Cells along each side of an apple bucket
+    // About one apple per bucket on a busy board
+    private static final int APPLE_BUCKET_SIZE = 16;
+    // Tries at finding an empty cell before giving up for this tick
+    private static final int SPAWN_TRIES = 8;
+
+    // The turns tried when planning, in order of preference
+    private static final Turn[] TURNS = {Turn.NONE, Turn.LEFT, Turn.RIGHT};
+    private static final Heading[] HEADINGS = Heading.values();
+
+    // Which cells any snake is on
+    private final OccupancyGrid mBoard;
+    private final int mWidth;
+
+    private final ArenaSnake[] mSnakes;
+
+    // Where each apple is, -1 while it couldn't find a free cell,
+    // the same thing keyed by cell for the heads to look up,
+    // and sorted into buckets for finding the nearest one
+    private final int[] mApples;
+    private final CellHash mAppleCells;
+    private final SpatialHash mAppleBuckets;
+
+    // Filled in while resolving a tick
+    // How many heads are heading for a cell and which tails are leaving one
+    private final CellHash mHeadClaims;
+    private final CellHash mLeavingTails;
+
+    // Only used in the resolve phase, so the order is fixed
+    private final Random mRandom = new Random();
+
+    private long mTicks;
+    private long mDeaths;
+    private long mApplesEaten;
+
+    public Arena(int width, int height, int snakes, int apples) {
+        mBoard = new OccupancyGrid(width, height);
+        mWidth = width;
+        mSnakes = new ArenaSnake[snakes];
+        for (int i = 0; i < snakes; i++) {
+            mSnakes[i] = new ArenaSnake();
+        }
+        mApples = new int[apples];
+        mAppleCells = new CellHash(apples);
+        mAppleBuckets = new SpatialHash(width, height, APPLE_BUCKET_SIZE, apples);
+        mHeadClaims = new CellHash(snakes);
+        mLeavingTails = new CellHash(snakes);
+    }
+
+    // Empty the board and place every snake and apple again
+    public void reset(long seed) {
+        mRandom.setSeed(seed);
+        mBoard.clearAll();
+        mAppleCells.clear();
+        mAppleBuckets.clear();
+        mTicks = 0;
+        mDeaths = 0;
+        mApplesEaten = 0;
+        for (ArenaSnake snake : mSnakes) {
+            snake.kill();
+            respawn(snake);
+        }
+        for (int i = 0; i < mApples.length; i++) {
+            mApples[i] = -1;
+            placeApple(i);
+        }
+    }
+
+    // Run one tick, planning on the pool
+    // A null pool plans on this thread
+    public void tick(ForkJoinPool pool) {
+        if (pool == null) {
+            plan(0, mSnakes.length);
+        } else {
+            pool.invoke(new PlanTask(0, mSnakes.length));
+        }
+        resolve();
+        mTicks++;
+    }
+
+    // Planning phase
+    // Only reads the board and apples and only writes to its own snakes,
+    // so any number of these can run at once
+    private void plan(int from, int to) {
+        for (int i = from; i < to; i++) {
+            ArenaSnake snake = mSnakes[i];
+            if (snake.isAlive()) {
+                planSnake(snake);
+            }
+        }
+    }
+
+    // Head for the nearest apple without running into anything
+    private void planSnake(ArenaSnake snake) {
+        // Keep chasing the same apple until it moves
+        int target = snake.getTargetApple();
+        int targetCell = snake.getTargetCell();
+        if (target < 0 || mApples[target] != targetCell || targetCell < 0) {
+            target = findNearestApple(snake);
+            targetCell = target < 0 ? -1 : mApples[target];
+        }
+
+        int head = snake.getSegments().get(0);
+        int x = SegmentRing.unpackX(head);
+        int y = SegmentRing.unpackY(head);
+        Heading heading = snake.getHeading();
+
+        // Try going straight, left and right and keep the safe one
+        // that gets closest to the apple
+        Turn best = Turn.NONE;
+        int bestDistance = Integer.MAX_VALUE;
+        boolean bestSafe = false;
+        for (Turn turn : TURNS) {
+            Heading next = heading.turn(turn);
+            int nx = x + next.getDx();
+            int ny = y + next.getDy();
+            boolean safe = mBoard.contains(nx, ny) && !mBoard.isOccupied(nx, ny);
+            int distance = targetCell < 0 ? 0
+                    : Math.abs(SegmentRing.unpackX(targetCell) - nx)
+                    + Math.abs(SegmentRing.unpackY(targetCell) - ny);
+            if ((safe && !bestSafe) || (safe == bestSafe && distance < bestDistance)) {
+                best = turn;
+                bestDistance = distance;
+                bestSafe = safe;
+            }
+        }
+        snake.plan(best, target, targetCell);
+    }
+
+    private int findNearestApple(ArenaSnake snake) {
+        int head = snake.getSegments().get(0);
+        return mAppleBuckets.findNearest(SegmentRing.unpackX(head), SegmentRing.unpackY(head));
+    }
+
+    // Resolve phase, on one thread in snake order
+    private void resolve() {
+        mHeadClaims.clear();
+        mLeavingTails.clear();
+
+        // Where does every head want to go,
+        // and which tails are moving out of the way?
+        for (ArenaSnake snake : mSnakes) {
+            if (!snake.isAlive()) {
+                continue;
+            }
+            Heading heading = snake.getHeading().turn(snake.getPlannedTurn());
+            snake.setHeading(heading);
+            SegmentRing segments = snake.getSegments();
+            int nx = SegmentRing.unpackX(segments.get(0)) + heading.getDx();
+            int ny = SegmentRing.unpackY(segments.get(0)) + heading.getDy();
+            int next = mBoard.contains(nx, ny) ? SegmentRing.pack(nx, ny) : -1;
+            snake.setNextCell(next, next < 0);
+            if (next >= 0) {
+                mHeadClaims.put(next, Math.max(0, mHeadClaims.get(next)) + 1);
+            }
+            if (!snake.willGrow()) {
+                mLeavingTails.put(segments.get(segments.size() - 1), 1);
+            }
+        }
+
+        // A head dies going off the board, into a body that isn't moving away,
+        // or into the same cell as another head
+        for (ArenaSnake snake : mSnakes) {
+            int next = snake.getNextCell();
+            if (snake.isAlive() && next >= 0) {
+                boolean blocked = mBoard.isOccupied(SegmentRing.unpackX(next), SegmentRing.unpackY(next))
+                        && mLeavingTails.get(next) < 0;
+                snake.setNextCell(next, blocked || mHeadClaims.get(next) > 1);
+            }
+        }
+
+        // Clear the dead and move the tails before any head moves in
+        for (ArenaSnake snake : mSnakes) {
+            if (!snake.isAlive()) {
+                continue;
+            }
+            SegmentRing segments = snake.getSegments();
+            if (snake.isDying()) {
+                while (!segments.isEmpty()) {
+                    clearCell(segments.removeTail());
+                }
+                snake.kill();
+                mDeaths++;
+            } else if (!snake.useGrowth()) {
+                clearCell(segments.removeTail());
+            }
+        }
+
+        // Move the heads and eat
+        for (ArenaSnake snake : mSnakes) {
+            if (!snake.isAlive()) {
+                continue;
+            }
+            int next = snake.getNextCell();
+            snake.getSegments().addHead(next);
+            mBoard.set(SegmentRing.unpackX(next), SegmentRing.unpackY(next));
+
+            int apple = mAppleCells.get(next);
+            if (apple >= 0) {
+                snake.grow(GROWTH_PER_APPLE);
+                mApplesEaten++;
+                mAppleCells.remove(next);
+                mAppleBuckets.remove(apple);
+                mApples[apple] = -1;
+                placeApple(apple);
+            }
+        }
+
+        // Bring back the dead, and any apples that had nowhere to go
+        for (ArenaSnake snake : mSnakes) {
+            if (!snake.isAlive()) {
+                respawn(snake);
+            }
+        }
+        for (int i = 0; i < mApples.length; i++) {
+            if (mApples[i] < 0) {
+                placeApple(i);
+            }
+        }
+    }
+
+    private void respawn(ArenaSnake snake) {
+        int cell = findEmptyCell();
+        if (cell >= 0) {
+            snake.spawn(cell, HEADINGS[mRandom.nextInt(HEADINGS.length)], START_LENGTH - 1);
+            mBoard.set(SegmentRing.unpackX(cell), SegmentRing.unpackY(cell));
+        }
+    }
+
+    private void placeApple(int apple) {
+        int cell = findEmptyCell();
+        if (cell >= 0) {
+            mApples[apple] = cell;
+            mAppleCells.put(cell, apple);
+            mAppleBuckets.insert(apple, SegmentRing.unpackX(cell), SegmentRing.unpackY(cell));
+        }
+    }
+
+    // A cell with no snake and no apple on it, or -1
+    private int findEmptyCell() {
+        for (int i = 0; i < SPAWN_TRIES; i++) {
+            int id = mBoard.getFreeCells().pick(mRandom);
+            if (id < 0) {
+                return -1;
+            }
+            int cell = SegmentRing.pack(id % mWidth, id / mWidth);
+            if (mAppleCells.get(cell) < 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    private void clearCell(int cell) {
+        mBoard.clear(SegmentRing.unpackX(cell), SegmentRing.unpackY(cell));
+    }
+
+    // Splits the snakes in half until each piece is small enough
+    private class PlanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int mFrom;
+        private final int mTo;
+
+        PlanTask(int from, int to) {
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom <= PLAN_CHUNK) {
+                plan(mFrom, mTo);
+            } else {
+                int middle = (mFrom + mTo) >>> 1;
+                invokeAll(new PlanTask(mFrom, middle), new PlanTask(middle, mTo));
+            }
+        }
+    }
+
+    public OccupancyGrid getBoard() {
+        return mBoard;
+    }
+
+    public int getSnakeCount() {
+        return mSnakes.length;
+    }
+
+    public ArenaSnake getSnake(int i) {
+        return mSnakes[i];
+    }
+
+    public int getAppleCount() {
+        return mApples.length;
+    }
+
+    // The packed cell of an apple, or -1 if it's waiting for a free cell
+    public int getApple(int i) {
+        return mApples[i];
+    }
+
+    public int getAliveCount() {
+        int alive = 0;
+        for (ArenaSnake snake : mSnakes) {
+            if (snake.isAlive()) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+
+    public long getTicks() {
+        return mTicks;
+    }
+
+    public long getDeaths() {
+        return mDeaths;
+    }
+
+    public long getApplesEaten() {
+        return mApplesEaten;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.myapplication.core;
+
+// One computer controlled snake in an Arena.
+// The arena plans and moves it, the snake just remembers
+// its body and what it decided to do next
+public class ArenaSnake {
+
+    // Grows as the snake does
+    private final SegmentRing mSegments = new SegmentRing(16);
+
+    private Heading mHeading = Heading.RIGHT;
+    private int mGrowth;
+    private boolean mAlive;
+    private int mScore;
+
+    // Written in the planning phase, each snake only by one thread
+    private Turn mPlannedTurn = Turn.NONE;
+    // The apple being chased and the cell it was on when chosen
+    private int mTargetApple = -1;
+    private int mTargetCell = -1;
+
+    // Written while the arena resolves a tick
+    private int mNextCell;
+    private boolean mDying;
+
+    // Start again on one cell
+    void spawn(int cell, Heading heading, int growth) {
+        mSegments.clear();
+        mSegments.addHead(cell);
+        mHeading = heading;
+        mGrowth = growth;
+        mAlive = true;
+        mScore = 0;
+        mPlannedTurn = Turn.NONE;
+        mTargetApple = -1;
+        mTargetCell = -1;
+    }
+
+    void kill() {
+        mAlive = false;
+    }
+
+    void grow(int segments) {
+        mGrowth += segments;
+        mScore++;
+    }
+
+    // Use up one tick of growth, true if the tail should stay put
+    boolean useGrowth() {
+        if (mGrowth > 0) {
+            mGrowth--;
+            return true;
+        }
+        return false;
+    }
+
+    boolean willGrow() {
+        return mGrowth > 0;
+    }
+
+    void setHeading(Heading heading) {
+        mHeading = heading;
+    }
+
+    void plan(Turn turn, int targetApple, int targetCell) {
+        mPlannedTurn = turn;
+        mTargetApple = targetApple;
+        mTargetCell = targetCell;
+    }
+
+    Turn getPlannedTurn() {
+        return mPlannedTurn;
+    }
+
+    int getTargetApple() {
+        return mTargetApple;
+    }
+
+    int getTargetCell() {
+        return mTargetCell;
+    }
+
+    void setNextCell(int cell, boolean dying) {
+        mNextCell = cell;
+        mDying = dying;
+    }
+
+    int getNextCell() {
+        return mNextCell;
+    }
+
+    boolean isDying() {
+        return mDying;
+    }
+
+    public SegmentRing getSegments() {
+        return mSegments;
+    }
+
+    public Heading getHeading() {
+        return mHeading;
+    }
+
+    public boolean isAlive() {
+        return mAlive;
+    }
+
+    public int getScore() {
+        return mScore;
+    }
+
+    public int length() {
+        return mSegments.size();
+    }
+}
@@ -0,0 +1,445 @@
+package com.example.myapplication.core;
+
+// Steers the snake by itself, for attract mode demos and soak tests.
+// Follows the Hamiltonian cycle where the board has one, otherwise
+// heads for the apple by A* search, and never allocates while planning
+public class Autopilot {
+
+    // The turns tried from the head, in order of preference
+    // Indexed by ordinal, straight on first
+    private static final Turn[] TURNS = Turn.values();
+
+    // Spare free cells a cut across the cycle must leave ahead of the head
+    // Each apple eaten before the tail moves on uses one up
+    private static final int SHORTCUT_SLACK = 4;
+
+    private final SnakeSimulation mSim;
+    private final OccupancyGrid mBoard;
+    private final int mWidth;
+
+    // Cells waiting to be searched at the lowest total cost,
+    // and at 2 more than that
+    private int[] mOpen;
+    private int[] mNextOpen;
+    private int mOpenCount;
+    private int mNextOpenCount;
+
+    // A cell has been reached in this search if its stamp matches
+    // Saves clearing the arrays before every search
+    private final int[] mSeen;
+    private int mStamp;
+
+    // For each reached cell, the steps from the start
+    // (negative once expanded), which of TURNS the path starts with
+    // and the cell it was reached from
+    private final int[] mCost;
+    private final byte[] mFirstTurn;
+    private final int[] mParent;
+    // The cell the last search reached the goal from, and in how many steps
+    private int mGoalParent;
+    private int mGoalSteps;
+
+    // Cells whose stamp matches mMarkStamp are taken to be occupied
+    // or not as mMarked says, whatever the board says, so a search
+    // can look at the board as it would be after some moves
+    // -1 when nothing is marked
+    private final int[] mMarks;
+    private final boolean[] mMarked;
+    private int mMarkStamp = -1;
+    private int mNextMarkStamp;
+
+    // The cells of the path to the apple, start to goal
+    private final int[] mPath;
+
+    // Null when the board can't have one
+    private final HamiltonianCycle mCycle;
+
+    // Ticks without eating before giving up
+    private final long mStuckTicks;
+    // The score last time we looked and the tick it changed on
+    private int mLastScore = -1;
+    private long mLastScoreTick;
+
+    public Autopilot(SnakeSimulation sim) {
+        mSim = sim;
+        mBoard = sim.getBoard();
+        mWidth = mBoard.getWidth();
+        int cells = mWidth * mBoard.getHeight();
+        mOpen = new int[cells];
+        mNextOpen = new int[cells];
+        mSeen = new int[cells];
+        mCost = new int[cells];
+        mFirstTurn = new byte[cells];
+        mParent = new int[cells];
+        mMarks = new int[cells];
+        mMarked = new boolean[cells];
+        mPath = new int[cells];
+        mCycle = HamiltonianCycle.fits(mWidth, mBoard.getHeight())
+                ? new HamiltonianCycle(mWidth, mBoard.getHeight()) : null;
+        // A lap of the board to get to the apple and a couple more
+        // to get out of the way of the body first
+        mStuckTicks = 3L * cells;
+    }
+
+    // Has the snake gone so long without eating that it never will?
+    // Can happen on a board with no cycle if it circles
+    public boolean isStuck() {
+        return getTicksSinceEating() > mStuckTicks;
+    }
+
+    // The turn for the next tick
+    // If the cycle and the path to the apple are both unsafe, it chases
+    // its tail, then takes any free cell
+    public Turn plan() {
+        SnakeBody snake = mSim.getSnake();
+        if (snake.length() == 0 || mSim.isOver()) {
+            return Turn.NONE;
+        }
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
+        Heading heading = snake.getHeading();
+        AppleSpawner apple = mSim.getApple();
+        // Keeps the stuck count up to date
+        getTicksSinceEating();
+
+        int turn;
+        if (mCycle != null) {
+            // As far along the cycle as is safe without passing the apple
+            turn = alongCycle(snake, apple);
+            if (turn >= 0) {
+                return TURNS[turn];
+            }
+        } else if (apple.isOnBoard()) {
+            // The shortest way to the apple, if the snake can get out again
+            turn = search(headX, headY, heading, apple.getX(), apple.getY());
+            if (turn >= 0 && isPathSafe(snake, apple)) {
+                return TURNS[turn];
+            }
+        }
+
+        // Chase the tail, it keeps moving out of the way
+        SegmentRing segments = snake.getSegments();
+        int tail = segments.get(segments.size() - 1);
+        turn = search(headX, headY, heading, SegmentRing.unpackX(tail), SegmentRing.unpackY(tail));
+        if (turn >= 0 && isFree(headX, headY, heading, turn)) {
+            return TURNS[turn];
+        }
+
+        // Anywhere that doesn't end the game straight away
+        for (int i = 0; i < TURNS.length; i++) {
+            if (isFree(headX, headY, heading, i)) {
+                return TURNS[i];
+            }
+        }
+        return Turn.NONE;
+    }
+
+    // Which of TURNS goes furthest along the cycle without passing the apple,
+    // keeping the body in cycle order with room ahead for the growth to come
+    // With the body in the order the cycle visits its cells and the free
+    // cells ahead holding the growth still to come, the next cell on the
+    // cycle is always free or the tail moving out. Cutting across is only
+    // allowed with cells to spare and while the snake covers less than
+    // half the board, after that it follows the cycle until the board is
+    // full. With an eat reach, passing near an apple eats it anyway,
+    // so a snake short of room can still die
+    // Returns -1 if none of them do, which only happens once
+    // something else has taken the snake off the cycle
+    private int alongCycle(SnakeBody snake, AppleSpawner apple) {
+        HamiltonianCycle cycle = mCycle;
+        int cells = cycle.size();
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
+        Heading heading = snake.getHeading();
+        int head = cycle.indexOf(headX, headY);
+        SegmentRing segments = snake.getSegments();
+        int length = segments.size();
+        int tailCell = segments.get(length - 1);
+        int tail = cycle.indexOf(SegmentRing.unpackX(tailCell), SegmentRing.unpackY(tailCell));
+        int growth = snake.getGrowth();
+
+        // The tail stays put while the snake grows, otherwise it moves
+        // up to the next segment, or with one segment follows the head
+        int tailAfter = -1;
+        if (growth > 0) {
+            tailAfter = tail;
+        } else if (length > 1) {
+            int next = segments.get(length - 2);
+            tailAfter = cycle.indexOf(SegmentRing.unpackX(next), SegmentRing.unpackY(next));
+        }
+        // The body is between the tail and the head, so the cells
+        // from the head up to the tail are free
+        int toTail = length > 1 ? forward(head, tail, cells) : cells;
+        int toApple = apple.isOnBoard()
+                ? forward(head, cycle.indexOf(apple.getX(), apple.getY()), cells) : cells;
+        int reach = mSim.getEatReach();
+
+        int best = -1;
+        int bestSteps = 0;
+        for (int i = 0; i < TURNS.length; i++) {
+            Heading next = heading.turn(TURNS[i]);
+            int x = headX + next.getDx();
+            int y = headY + next.getDy();
+            if (!mBoard.contains(x, y)) {
+                continue;
+            }
+            int index = cycle.indexOf(x, y);
+            int steps = forward(head, index, cells);
+            // Only into the tail's cell if it's moving out
+            if (steps == 0 || steps > toTail || (steps == toTail && growth > 0)
+                    || (steps < toTail && mBoard.isOccupied(x, y))) {
+                continue;
+            }
+
+            // The free cells left ahead must hold all the growth to come,
+            // including from the apple if this eats it
+            boolean eats = apple.isOnBoard() && Math.abs(apple.getX() - x) <= reach
+                    && Math.abs(apple.getY() - y) <= reach;
+            int growthAfter = Math.max(growth - 1, 0) + (eats ? 1 : 0);
+            int freeAhead = tailAfter >= 0 ? forward(index, tailAfter, cells) - 1 : cells - 1;
+            if (freeAhead < growthAfter) {
+                continue;
+            }
+            // Cutting across leaves free cells behind the head that only
+            // come back once the tail gets there. Apples that keep landing
+            // just ahead can use up the cells ahead before that, so only
+            // cut across with some to spare, and only while the snake
+            // covers less than half the board. Later on it follows
+            // the cycle and the cells left behind fill back in
+            if (steps > 1 && (freeAhead - growthAfter < SHORTCUT_SLACK || 2 * length > cells)) {
+                continue;
+            }
+
+            // Furthest without passing the apple, or if they all
+            // pass it, the one that goes least far round
+            boolean passes = steps > toApple;
+            boolean bestPasses = bestSteps > toApple;
+            if (best < 0 || (bestPasses && (!passes || steps < bestSteps))
+                    || (!bestPasses && !passes && steps > bestSteps)) {
+                best = i;
+                bestSteps = steps;
+            }
+        }
+        return best;
+    }
+
+    // Steps along the cycle from one index to another
+    private static int forward(int from, int to, int cells) {
+        int steps = to - from;
+        return steps < 0 ? steps + cells : steps;
+    }
+
+    // After search() found the apple, move a copy of the snake along
+    // the path to where it eats, growing as it goes, and check it could
+    // still get to its tail from there
+    private boolean isPathSafe(SnakeBody snake, AppleSpawner apple) {
+        int length = snake.length();
+        int growth = snake.getGrowth();
+
+        // The path back from the apple, then turned around
+        int goal = apple.getY() * mWidth + apple.getX();
+        int start = snake.getHeadY() * mWidth + snake.getHeadX();
+        int steps = mGoalSteps;
+        mPath[steps - 1] = goal;
+        for (int i = steps - 2, cell = mGoalParent; i >= 0; i--, cell = mParent[cell]) {
+            mPath[i] = cell;
+        }
+
+        // The apple is eaten on the first cell within reach of it
+        int reach = mSim.getEatReach();
+        int eatenAt = 0;
+        while (Math.abs(mPath[eatenAt] % mWidth - apple.getX()) > reach
+                || Math.abs(mPath[eatenAt] / mWidth - apple.getY()) > reach) {
+            eatenAt++;
+        }
+        steps = eatenAt + 1;
+
+        // Each move uses up some growth or takes a segment off the tail
+        int grown = Math.min(growth, steps);
+        int lengthAfter = length + grown;
+
+        // Mark the board as it would be then
+        mark();
+        SegmentRing segments = snake.getSegments();
+        for (int i = Math.max(lengthAfter - steps, 0); i < length; i++) {
+            int cell = segments.get(i);
+            setMarked(SegmentRing.unpackY(cell) * mWidth + SegmentRing.unpackX(cell), false);
+        }
+        for (int i = Math.max(steps - lengthAfter, 0); i < steps; i++) {
+            setMarked(mPath[i], true);
+        }
+        int tail;
+        if (lengthAfter > steps) {
+            int cell = segments.get(lengthAfter - steps - 1);
+            tail = SegmentRing.unpackY(cell) * mWidth + SegmentRing.unpackX(cell);
+        } else {
+            tail = mPath[steps - lengthAfter];
+        }
+
+        int head = mPath[steps - 1];
+        int from = steps > 1 ? mPath[steps - 2] : start;
+        Heading heading = headingBetween(from, head);
+        boolean safe = lengthAfter == 1
+                || search(head % mWidth, head / mWidth, heading, tail % mWidth, tail / mWidth) >= 0;
+        mMarkStamp = -1;
+        return safe;
+    }
+
+    // The way from one cell to the one next to it
+    private Heading headingBetween(int from, int to) {
+        int difference = to - from;
+        if (difference == 1) {
+            return Heading.RIGHT;
+        } else if (difference == -1) {
+            return Heading.LEFT;
+        }
+        return difference > 0 ? Heading.DOWN : Heading.UP;
+    }
+
+    // Start a new set of marked cells
+    private void mark() {
+        mNextMarkStamp++;
+        if (mNextMarkStamp == Integer.MAX_VALUE) {
+            for (int i = 0; i < mMarks.length; i++) {
+                mMarks[i] = 0;
+            }
+            mNextMarkStamp = 1;
+        }
+        mMarkStamp = mNextMarkStamp;
+    }
+
+    private void setMarked(int cell, boolean occupied) {
+        mMarks[cell] = mMarkStamp;
+        mMarked[cell] = occupied;
+    }
+
+    // Occupied on the board, or as marked
+    private boolean isOccupied(int cell, int x, int y) {
+        return mMarks[cell] == mMarkStamp ? mMarked[cell] : mBoard.isOccupied(x, y);
+    }
+
+    // Notices a new score or a new game
+    private long getTicksSinceEating() {
+        long ticks = mSim.getTicks();
+        int score = mSim.getScore();
+        if (score != mLastScore || ticks < mLastScoreTick) {
+            mLastScore = score;
+            mLastScoreTick = ticks;
+        }
+        return ticks - mLastScoreTick;
+    }
+
+    private boolean isFree(int headX, int headY, Heading heading, int turn) {
+        Heading next = heading.turn(TURNS[turn]);
+        int x = headX + next.getDx();
+        int y = headY + next.getDy();
+        return mBoard.contains(x, y) && !mBoard.isOccupied(x, y);
+    }
+
+    // A* search from x, y to the goal, avoiding the body
+    // The goal may be on the body, like the tail
+    // Every step costs the same and the estimate is the distance across
+    // plus down, so a step changes the total by 0 or 2. That means two
+    // stacks do the job of a priority queue: the cells at the lowest total
+    // and the cells at 2 more
+    // Returns which of TURNS starts the shortest path, or -1 if there isn't one
+    private int search(int x, int y, Heading heading, int goalX, int goalY) {
+        nextStamp();
+        int stamp = mStamp;
+        int width = mWidth;
+        int goal = goalY * width + goalX;
+        int start = y * width + x;
+        mSeen[start] = stamp;
+        mCost[start] = -1;
+        mOpenCount = 0;
+        mNextOpenCount = 0;
+
+        // The first step can only go straight, left or right
+        int startDistance = Math.abs(goalX - x) + Math.abs(goalY - y);
+        for (int i = 0; i < TURNS.length; i++) {
+            Heading next = heading.turn(TURNS[i]);
+            int nx = x + next.getDx();
+            int ny = y + next.getDy();
+            if (!mBoard.contains(nx, ny)) {
+                continue;
+            }
+            int cell = ny * width + nx;
+            if (cell == goal) {
+                mGoalParent = start;
+                mGoalSteps = 1;
+                return i;
+            }
+            if (!isOccupied(cell, nx, ny)) {
+                open(cell, start, 1, i, Math.abs(goalX - nx) + Math.abs(goalY - ny) < startDistance);
+            }
+        }
+
+        // After that any direction will do
+        while (mOpenCount > 0 || mNextOpenCount > 0) {
+            if (mOpenCount == 0) {
+                // Everything at this total is done, move on to the next one
+                int[] open = mOpen;
+                mOpen = mNextOpen;
+                mNextOpen = open;
+                mOpenCount = mNextOpenCount;
+                mNextOpenCount = 0;
+            }
+            int cell = mOpen[--mOpenCount];
+            int cost = mCost[cell];
+            if (cost < 0) {
+                // Already expanded from a cheaper route
+                continue;
+            }
+            // Negative marks a cell as expanded
+            mCost[cell] = -1 - cost;
+
+            int cx = cell % width;
+            int cy = cell / width;
+            int distance = Math.abs(goalX - cx) + Math.abs(goalY - cy);
+            int first = mFirstTurn[cell];
+            for (int d = 0; d < 4; d++) {
+                int nx = cx + (d == 0 ? 1 : d == 1 ? -1 : 0);
+                int ny = cy + (d == 2 ? 1 : d == 3 ? -1 : 0);
+                if (!mBoard.contains(nx, ny)) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if (next == goal) {
+                    mGoalParent = cell;
+                    mGoalSteps = cost + 1;
+                    return first;
+                }
+                if (isOccupied(next, nx, ny)
+                        || (mSeen[next] == stamp && (mCost[next] < 0 || mCost[next] <= cost + 1))) {
+                    continue;
+                }
+                open(next, cell, cost + 1, first, Math.abs(goalX - nx) + Math.abs(goalY - ny) < distance);
+            }
+        }
+        return -1;
+    }
+
+    // Add a cell to the stack for its total
+    private void open(int cell, int parent, int cost, int firstTurn, boolean closer) {
+        mSeen[cell] = mStamp;
+        mParent[cell] = parent;
+        mCost[cell] = cost;
+        mFirstTurn[cell] = (byte) firstTurn;
+        if (closer) {
+            mOpen[mOpenCount++] = cell;
+        } else {
+            mNextOpen[mNextOpenCount++] = cell;
+        }
+    }
+
+    private void nextStamp() {
+        mStamp++;
+        if (mStamp == Integer.MAX_VALUE) {
+            // Start the stamps again rather than wrap around
+            for (int i = 0; i < mSeen.length; i++) {
+                mSeen[i] = 0;
+            }
+            mStamp = 1;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.myapplication.core;
+
+// A map from packed cells to ints for when only a few cells
+// out of a big board matter, like apples or where heads are going.
+// Open addressing with linear probing in flat arrays,
+// so lookups and updates never allocate
+public class CellHash {
+
+    // Marks an empty slot, packed cells on the board are never negative
+    private static final int EMPTY = -1;
+
+    private final int[] mKeys;
+    private final int[] mValues;
+    private final int mMask;
+    private int mSize;
+
+    // Room for at least this many cells at once
+    public CellHash(int capacity) {
+        // Keep it at most half full so probes stay short
+        int slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        mKeys = new int[slots];
+        mValues = new int[slots];
+        mMask = slots - 1;
+        clear();
+    }
+
+    public void clear() {
+        for (int i = 0; i < mKeys.length; i++) {
+            mKeys[i] = EMPTY;
+        }
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    // The value for a cell, or -1 if it isn't in the map
+    public int get(int cell) {
+        for (int slot = slotFor(cell); ; slot = (slot + 1) & mMask) {
+            int key = mKeys[slot];
+            if (key == cell) {
+                return mValues[slot];
+            } else if (key == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    public void put(int cell, int value) {
+        int slot = slotFor(cell);
+        while (mKeys[slot] != EMPTY && mKeys[slot] != cell) {
+            slot = (slot + 1) & mMask;
+        }
+        if (mKeys[slot] == EMPTY) {
+            if (mSize * 2 >= mKeys.length) {
+                throw new IllegalStateException("CellHash is full");
+            }
+            mSize++;
+        }
+        mKeys[slot] = cell;
+        mValues[slot] = value;
+    }
+
+    public void remove(int cell) {
+        int slot = slotFor(cell);
+        while (mKeys[slot] != cell) {
+            if (mKeys[slot] == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & mMask;
+        }
+        mKeys[slot] = EMPTY;
+        mSize--;
+
+        // Move later entries back into the gap
+        // so probes for them don't stop early
+        int next = (slot + 1) & mMask;
+        while (mKeys[next] != EMPTY) {
+            int key = mKeys[next];
+            int home = slotFor(key);
+            // Can the entry at next live in the gap?
+            if (((next - home) & mMask) >= ((next - slot) & mMask)) {
+                mKeys[slot] = key;
+                mValues[slot] = mValues[next];
+                mKeys[next] = EMPTY;
+                slot = next;
+            }
+            next = (next + 1) & mMask;
+        }
+    }
+
+    // Where a cell's probe starts, package private so tests can find collisions
+    int slotFor(int cell) {
+        // Spread neighbouring cells across the table
+        int hash = cell * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mMask;
+    }
+}
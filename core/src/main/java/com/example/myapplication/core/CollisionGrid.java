@@ -0,0 +1,174 @@
+package com.example.myapplication.core;
+
+// Which entities are on which cells, for finding what ran into what.
+// An entity can cover any number of cells, each one is a handle.
+// Only handles that moved since the last detect() are checked,
+// against the other handles on their new cell,
+// so a tick costs what moved rather than everything against everything.
+// Each cell's handles are a linked list threaded through flat arrays,
+// so nothing allocates once it's built
+public class CollisionGrid {
+
+    private final int mWidth;
+    private final int mHeight;
+
+    // The first handle on each cell, or -1
+    private final int[] mFirst;
+
+    // Per handle: the entity it belongs to, the neighbours in its
+    // cell's list and which cell it is on (-1 for off the board)
+    private final int[] mEntity;
+    private final int[] mNext;
+    private final int[] mPrevious;
+    private final int[] mCell;
+
+    // Handles not in use, as a stack
+    private final int[] mFree;
+    private int mFreeCount;
+    // Which handles are in use
+    private final boolean[] mUsed;
+
+    // Handles that moved since the last detect
+    private final int[] mMoved;
+    private int mMovedCount;
+    // Where each handle is in mMoved, or -1
+    private final int[] mQueuedAt;
+
+    // capacity is how many handles can be in use at once
+    public CollisionGrid(int width, int height, int capacity) {
+        mWidth = width;
+        mHeight = height;
+        mFirst = new int[width * height];
+        for (int i = 0; i < mFirst.length; i++) {
+            mFirst[i] = -1;
+        }
+        mEntity = new int[capacity];
+        mNext = new int[capacity];
+        mPrevious = new int[capacity];
+        mCell = new int[capacity];
+        mFree = new int[capacity];
+        mUsed = new boolean[capacity];
+        mMoved = new int[capacity];
+        mQueuedAt = new int[capacity];
+        // Hand out the low handles first
+        for (int i = 0; i < capacity; i++) {
+            mFree[i] = capacity - 1 - i;
+            mQueuedAt[i] = -1;
+        }
+        mFreeCount = capacity;
+    }
+
+    // Put a cell of entity at x, y and return its handle
+    // Nothing is reported until something moves onto it
+    public int add(int entity, int x, int y) {
+        if (mFreeCount == 0) {
+            throw new IllegalStateException("CollisionGrid is full");
+        }
+        int handle = mFree[--mFreeCount];
+        mUsed[handle] = true;
+        mEntity[handle] = entity;
+        mCell[handle] = -1;
+        link(handle, x, y);
+        return handle;
+    }
+
+    // Move a handle to x, y, it's checked at the next detect
+    // Off the board is allowed, it just can't hit anything there
+    public void move(int handle, int x, int y) {
+        unlink(handle);
+        link(handle, x, y);
+        if (mQueuedAt[handle] < 0) {
+            mQueuedAt[handle] = mMovedCount;
+            mMoved[mMovedCount++] = handle;
+        }
+    }
+
+    public void remove(int handle) {
+        if (!mUsed[handle]) {
+            return;
+        }
+        unlink(handle);
+        // Take it out of the queue, the last one fills its place
+        int at = mQueuedAt[handle];
+        if (at >= 0) {
+            int last = mMoved[--mMovedCount];
+            mMoved[at] = last;
+            mQueuedAt[last] = at;
+            mQueuedAt[handle] = -1;
+        }
+        mUsed[handle] = false;
+        mFree[mFreeCount++] = handle;
+    }
+
+    // Remove everything
+    // Costs the number of handles, not the size of the board
+    public void clear() {
+        for (int handle = 0; handle < mUsed.length; handle++) {
+            remove(handle);
+        }
+    }
+
+    // The broad phase, once per tick
+    // Tells handler about every handle that moved onto a cell
+    // another handle is on, then forgets the moves
+    // A pair that both moved is only reported once,
+    // with the lower handle as the mover
+    // Returns how many collisions were reported
+    public int detect(CollisionHandler handler) {
+        int collisions = 0;
+        for (int i = 0; i < mMovedCount; i++) {
+            int handle = mMoved[i];
+            int cell = mCell[handle];
+            if (cell < 0) {
+                continue;
+            }
+            for (int other = mFirst[cell]; other >= 0; other = mNext[other]) {
+                if (other == handle || (mQueuedAt[other] >= 0 && other < handle)) {
+                    continue;
+                }
+                handler.onCollision(mEntity[handle], mEntity[other],
+                        cell % mWidth, cell / mWidth);
+                collisions++;
+            }
+        }
+        for (int i = 0; i < mMovedCount; i++) {
+            mQueuedAt[mMoved[i]] = -1;
+        }
+        mMovedCount = 0;
+        return collisions;
+    }
+
+    public int getEntity(int handle) {
+        return mEntity[handle];
+    }
+
+    private void link(int handle, int x, int y) {
+        if (x < 0 || x >= mWidth || y < 0 || y >= mHeight) {
+            return;
+        }
+        int cell = y * mWidth + x;
+        mCell[handle] = cell;
+        mPrevious[handle] = -1;
+        mNext[handle] = mFirst[cell];
+        if (mFirst[cell] >= 0) {
+            mPrevious[mFirst[cell]] = handle;
+        }
+        mFirst[cell] = handle;
+    }
+
+    private void unlink(int handle) {
+        int cell = mCell[handle];
+        if (cell < 0) {
+            return;
+        }
+        if (mPrevious[handle] >= 0) {
+            mNext[mPrevious[handle]] = mNext[handle];
+        } else {
+            mFirst[cell] = mNext[handle];
+        }
+        if (mNext[handle] >= 0) {
+            mPrevious[mNext[handle]] = mPrevious[handle];
+        }
+        mCell[handle] = -1;
+    }
+}
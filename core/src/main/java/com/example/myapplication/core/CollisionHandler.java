@@ -0,0 +1,11 @@
+package com.example.myapplication.core;
+
+// Told about each collision CollisionGrid finds.
+// Only reports what touched what, the game decides what that means
+public interface CollisionHandler {
+
+    // mover moved onto the cell x, y where other already was
+    // Both are the entity ids they were added with
+    // Don't add, move or remove anything in the grid from here
+    void onCollision(int mover, int other, int x, int y);
+}
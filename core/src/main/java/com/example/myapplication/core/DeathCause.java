@@ -0,0 +1,6 @@
+package com.example.myapplication.core;
+
+// What the snake ran into, NONE while it's alive
+public enum DeathCause {
+    NONE, WALL, BODY
+}
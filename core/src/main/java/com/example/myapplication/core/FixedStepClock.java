@@ -0,0 +1,84 @@
+package com.example.myapplication.core;
+
+// Turns frame timestamps into a whole number of fixed length ticks.
+// Time left over is carried to the next frame so ticks never drift,
+// and a long stall only runs a few ticks instead of all of them
+public class FixedStepClock {
+
+    private final long mStepNanos;
+    private final int mMaxStepsPerFrame;
+
+    // When the last frame happened, or -1 before the first one
+    private long mLastNanos = -1;
+
+    // Time that has passed but not been ticked yet
+    private long mAccumulator;
+
+    // How late the first tick of the last advance was
+    private long mLateNanos;
+    // Ticks thrown away after stalls since the clock was made
+    private long mDroppedSteps;
+
+    public FixedStepClock(long stepNanos, int maxStepsPerFrame) {
+        mStepNanos = stepNanos;
+        mMaxStepsPerFrame = maxStepsPerFrame;
+    }
+
+    // Start counting again from now
+    // Used while paused so time spent paused is never ticked
+    public void reset(long nowNanos) {
+        mLastNanos = nowNanos;
+        mAccumulator = 0;
+        mLateNanos = 0;
+    }
+
+    // How many ticks to run for a frame at this time
+    public int advance(long nowNanos) {
+        if (mLastNanos < 0) {
+            reset(nowNanos);
+            return 0;
+        }
+        long elapsed = nowNanos - mLastNanos;
+        mLastNanos = nowNanos;
+        if (elapsed > 0) {
+            mAccumulator += elapsed;
+        }
+
+        int steps = (int) Math.min(mAccumulator / mStepNanos, mMaxStepsPerFrame);
+        // The first tick was due when the accumulator passed one step
+        mLateNanos = steps > 0 ? mAccumulator - mStepNanos : 0;
+        mAccumulator -= steps * mStepNanos;
+
+        // Too far behind, drop the rest rather than fast forward
+        if (mAccumulator >= mStepNanos) {
+            mDroppedSteps += mAccumulator / mStepNanos;
+            mAccumulator %= mStepNanos;
+        }
+        return steps;
+    }
+
+    // How far we are between the last tick and the next one, 0 to 1
+    public float getAlpha() {
+        return (float) mAccumulator / mStepNanos;
+    }
+
+    // How long until the next tick is due
+    public long getNanosUntilNextStep() {
+        return mStepNanos - mAccumulator;
+    }
+
+    // How long after it was due the first tick of the last advance ran
+    // 0 if it didn't run any
+    public long getLateNanos() {
+        return mLateNanos;
+    }
+
+    // How many ticks have been skipped because we were too far behind
+    public long getDroppedSteps() {
+        return mDroppedSteps;
+    }
+
+    public long getStepNanos() {
+        return mStepNanos;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.myapplication.core;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+// Every empty cell an apple is allowed to spawn on.
+// Cells are kept packed at the front of an array so picking one
+// at random is O(1), and a position map lets a cell be
+// removed by swapping it with the last one
+public class FreeCellIndex {
+
+    private final int mWidth;
+    private final int mHeight;
+
+    // Cells closer to the top or left edge than this never get an apple
+    private final int mMargin;
+
+    // The free cell ids, y * width + x, in the first mCount slots
+    private final int[] mCells;
+
+    // Where each cell id sits in mCells, or -1 if it isn't free
+    private final int[] mPositions;
+
+    private int mCount;
+
+    public FreeCellIndex(int width, int height, int margin) {
+        mWidth = width;
+        mHeight = height;
+        mMargin = margin;
+        mCells = new int[width * height];
+        mPositions = new int[width * height];
+        reset();
+    }
+
+    // Mark every allowed cell as free again
+    public void reset() {
+        mCount = 0;
+        for (int y = 0; y < mHeight; y++) {
+            for (int x = 0; x < mWidth; x++) {
+                int cell = y * mWidth + x;
+                if (isAllowed(x, y)) {
+                    mCells[mCount] = cell;
+                    mPositions[cell] = mCount;
+                    mCount++;
+                } else {
+                    mPositions[cell] = -1;
+                }
+            }
+        }
+    }
+
+    // How many cells are free
+    public int size() {
+        return mCount;
+    }
+
+    // Something moved onto the cell
+    public void occupy(int x, int y) {
+        if (!isAllowed(x, y)) {
+            return;
+        }
+        int cell = y * mWidth + x;
+        int position = mPositions[cell];
+        if (position < 0) {
+            return;
+        }
+
+        // Move the last free cell into the gap
+        mCount--;
+        int last = mCells[mCount];
+        mCells[position] = last;
+        mPositions[last] = position;
+        mPositions[cell] = -1;
+    }
+
+    // Something moved off the cell
+    public void release(int x, int y) {
+        if (!isAllowed(x, y)) {
+            return;
+        }
+        int cell = y * mWidth + x;
+        if (mPositions[cell] >= 0) {
+            return;
+        }
+        mCells[mCount] = cell;
+        mPositions[cell] = mCount;
+        mCount++;
+    }
+
+    // The order of the free cells depends on everything that came before,
+    // so a saved game keeps it to spawn the same apples
+    void save(IntBuffer out) {
+        out.put(mCells, 0, mCount);
+    }
+
+    // Put back count cell ids in the order they were saved
+    // Returns false, with every cell free again, if one isn't a cell
+    // apples are allowed on or comes up twice
+    boolean restore(IntBuffer in, int count) {
+        in.get(mCells, 0, count);
+        for (int i = 0; i < mPositions.length; i++) {
+            mPositions[i] = -1;
+        }
+        for (int i = 0; i < count; i++) {
+            int cell = mCells[i];
+            if (cell < 0 || cell >= mPositions.length
+                    || !isAllowed(cell % mWidth, cell / mWidth) || mPositions[cell] >= 0) {
+                reset();
+                return false;
+            }
+            mPositions[cell] = i;
+        }
+        mCount = count;
+        return true;
+    }
+
+    // Is every allowed cell free exactly when nothing is on it?
+    // Only needed after a restore, everything else keeps them in step
+    boolean isInStepWith(OccupancyGrid board) {
+        for (int y = 0; y < mHeight; y++) {
+            for (int x = 0; x < mWidth; x++) {
+                boolean free = isAllowed(x, y) && !board.isOccupied(x, y);
+                if (free != (mPositions[y * mWidth + x] >= 0)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Could an apple be put on the cell?
+    public boolean isFree(int x, int y) {
+        return isAllowed(x, y) && mPositions[y * mWidth + x] >= 0;
+    }
+
+    // Pick a free cell id uniformly, or -1 if the board is full
+    public int pick(Random random) {
+        if (mCount == 0) {
+            return -1;
+        }
+        return mCells[random.nextInt(mCount)];
+    }
+
+    private boolean isAllowed(int x, int y) {
+        return x >= mMargin && x < mWidth && y >= mMargin && y < mHeight;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.myapplication.core;
+
+// A copy of everything the renderer needs from one tick.
+// Filled in by the simulation thread and read by the render thread,
+// never both at once. Reused from tick to tick.
+// The body is kept as the board's occupancy bits so the renderer
+// only has to look at the cells that are on screen
+public class GameSnapshot {
+
+    // Where the game is up to
+    public static final int PHASE_READY = 0;
+    public static final int PHASE_RUNNING = 1;
+    public static final int PHASE_PAUSED = 2;
+    public static final int PHASE_OVER = 3;
+
+    // Which cells the snake is on, copied from the OccupancyGrid
+    // Made once the board size is known, otherwise reused
+    private long[] mOccupied = new long[0];
+    private int mBoardWidth;
+    private int mBoardHeight;
+
+    // The only segments that move between ticks are the head and the tail
+    // Packed cells, with where each was before the last move
+    private int mLength;
+    private int mHead;
+    private int mHeadFrom;
+    private int mTail;
+    private int mTailFrom;
+
+    private Heading mHeading = Heading.RIGHT;
+    private int mAppleX = -10;
+    private int mAppleY = -10;
+    private int mScore;
+    private int mPhase = PHASE_READY;
+
+    // When the tick this shows happened, in System.nanoTime
+    private long mTickNanos;
+
+    // Copy the simulation as it is now
+    public void capture(SnakeSimulation sim, int phase, long tickNanos) {
+        OccupancyGrid board = sim.getBoard();
+        if (mOccupied.length != board.getWordCount()) {
+            mOccupied = new long[board.getWordCount()];
+        }
+        board.copyWords(mOccupied);
+        mBoardWidth = board.getWidth();
+        mBoardHeight = board.getHeight();
+
+        SnakeBody snake = sim.getSnake();
+        SegmentRing segments = snake.getSegments();
+        int length = segments.size();
+        mLength = length;
+        if (length > 0) {
+            mHead = segments.get(0);
+            mHeadFrom = snake.getPrevious(0);
+            mTail = segments.get(length - 1);
+            mTailFrom = snake.getPrevious(length - 1);
+        }
+        mHeading = snake.getHeading();
+        mAppleX = sim.getApple().getX();
+        mAppleY = sim.getApple().getY();
+        mScore = sim.getScore();
+        mPhase = phase;
+        mTickNanos = tickNanos;
+    }
+
+    // Is a snake segment on the cell?
+    // Cells off the board always count as empty
+    public boolean isOccupied(int x, int y) {
+        if (x < 0 || x >= mBoardWidth || y < 0 || y >= mBoardHeight) {
+            return false;
+        }
+        int cell = y * mBoardWidth + x;
+        return (mOccupied[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public int getBoardWidth() {
+        return mBoardWidth;
+    }
+
+    public int getBoardHeight() {
+        return mBoardHeight;
+    }
+
+    public int getLength() {
+        return mLength;
+    }
+
+    // The packed cells of the head and tail,
+    // and where they were before the last move
+    public int getHead() {
+        return mHead;
+    }
+
+    public int getHeadFrom() {
+        return mHeadFrom;
+    }
+
+    public int getTail() {
+        return mTail;
+    }
+
+    public int getTailFrom() {
+        return mTailFrom;
+    }
+
+    public Heading getHeading() {
+        return mHeading;
+    }
+
+    public int getAppleX() {
+        return mAppleX;
+    }
+
+    public int getAppleY() {
+        return mAppleY;
+    }
+
+    public int getScore() {
+        return mScore;
+    }
+
+    public int getPhase() {
+        return mPhase;
+    }
+
+    public long getTickNanos() {
+        return mTickNanos;
+    }
+}
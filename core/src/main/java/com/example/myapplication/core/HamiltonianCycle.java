@@ -0,0 +1,105 @@
+package com.example.myapplication.core;
+
+// A route that visits every cell once and comes back to the start.
+// A snake following it never dies, so the benchmarks can run
+// a snake of any length for as long as they like,
+// and the autopilot follows it, cutting across where that's safe.
+// Along the top row, back and forth through the rest,
+// then up the first column. That needs an even height,
+// so with an odd height the same route is turned on its side
+// and goes down and up the columns instead
+public final class HamiltonianCycle {
+
+    private final int mWidth;
+
+    // Which way to leave each cell
+    private final Heading[] mHeadings;
+
+    // How far along the cycle each cell is from the top left corner
+    private final int[] mIndex;
+
+    // Can a board this size have the cycle?
+    // One with both sides odd never can
+    public static boolean fits(int width, int height) {
+        return width >= 2 && height >= 2 && (height % 2 == 0 || width % 2 == 0);
+    }
+
+    public HamiltonianCycle(int width, int height) {
+        if (!fits(width, height)) {
+            throw new IllegalArgumentException("Needs an even side and both at least 2");
+        }
+        mWidth = width;
+        mHeadings = new Heading[width * height];
+
+        boolean rows = height % 2 == 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                mHeadings[y * width + x] = rows
+                        ? rowHeading(x, y, width, height)
+                        : transpose(rowHeading(y, x, height, width));
+            }
+        }
+
+        mIndex = new int[width * height];
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < mIndex.length; i++) {
+            mIndex[y * width + x] = i;
+            Heading heading = mHeadings[y * width + x];
+            x += heading.getDx();
+            y += heading.getDy();
+        }
+    }
+
+    // The way out of a cell on the row by row route
+    private static Heading rowHeading(int x, int y, int width, int height) {
+        if (y == 0) {
+            return x < width - 1 ? Heading.RIGHT : Heading.DOWN;
+        } else if (x == 0) {
+            return Heading.UP;
+        } else if (y % 2 == 1) {
+            // Odd rows go left, the last one drops into the first column
+            return x > 1 || y == height - 1 ? Heading.LEFT : Heading.DOWN;
+        }
+        // Even rows go right
+        return x < width - 1 ? Heading.RIGHT : Heading.DOWN;
+    }
+
+    // The same move with x and y swapped
+    private static Heading transpose(Heading heading) {
+        switch (heading) {
+            case UP:
+                return Heading.LEFT;
+            case LEFT:
+                return Heading.UP;
+            case RIGHT:
+                return Heading.DOWN;
+            default:
+                return Heading.RIGHT;
+        }
+    }
+
+    public Heading at(int x, int y) {
+        return mHeadings[y * mWidth + x];
+    }
+
+    // Steps along the cycle from the top left corner to x, y
+    public int indexOf(int x, int y) {
+        return mIndex[y * mWidth + x];
+    }
+
+    // Cells on the cycle, the whole board
+    public int size() {
+        return mIndex.length;
+    }
+
+    // The turn that keeps the snake on the cycle
+    public Turn steer(SnakeBody snake) {
+        Heading wanted = at(snake.getHeadX(), snake.getHeadY());
+        Heading heading = snake.getHeading();
+        if (wanted == heading) {
+            return Turn.NONE;
+        }
+        return wanted == heading.turnRight() ? Turn.RIGHT : Turn.LEFT;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.myapplication.core;
+
+// Which way the snake is moving
+public enum Heading {
+    UP, RIGHT, DOWN, LEFT;
+
+    // A quarter turn clockwise
+    public Heading turnRight() {
+        switch (this) {
+            case UP:
+                return RIGHT;
+            case RIGHT:
+                return DOWN;
+            case DOWN:
+                return LEFT;
+            default:
+                return UP;
+        }
+    }
+
+    // A quarter turn anti-clockwise
+    public Heading turnLeft() {
+        switch (this) {
+            case UP:
+                return LEFT;
+            case LEFT:
+                return DOWN;
+            case DOWN:
+                return RIGHT;
+            default:
+                return UP;
+        }
+    }
+
+    // The heading after a turn, or this one for Turn.NONE
+    public Heading turn(Turn turn) {
+        if (turn == Turn.RIGHT) {
+            return turnRight();
+        } else if (turn == Turn.LEFT) {
+            return turnLeft();
+        }
+        return this;
+    }
+
+    // How far one move goes across, -1, 0 or 1
+    public int getDx() {
+        return this == RIGHT ? 1 : this == LEFT ? -1 : 0;
+    }
+
+    // How far one move goes down, -1, 0 or 1
+    public int getDy() {
+        return this == DOWN ? 1 : this == UP ? -1 : 0;
+    }
+}
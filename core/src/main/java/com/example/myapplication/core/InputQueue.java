@@ -0,0 +1,71 @@
+package com.example.myapplication.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Turns waiting to be applied, passed from the UI thread to the game thread.
+// One thread offers and one thread polls, so no locks are needed.
+// Each turn keeps the time it was made so its delay can be measured
+public class InputQueue {
+
+    // Looked up by ordinal, values() makes a new array every call
+    private static final Turn[] TURNS = Turn.values();
+
+    private final int mMask;
+    private final int[] mTurns;
+    private final long[] mTimes;
+
+    // Only the UI thread moves mWrite and only the game thread moves mRead
+    private final AtomicInteger mWrite = new AtomicInteger();
+    private final AtomicInteger mRead = new AtomicInteger();
+
+    // When the turn last returned by poll() was made
+    private long mLastTime;
+
+    // The capacity is rounded up to a power of two
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 1) - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+        mMask = size - 1;
+        mTurns = new int[size];
+        mTimes = new long[size];
+    }
+
+    // Called by the producer
+    // Returns false and drops the turn if the queue is full
+    public boolean offer(Turn turn, long time) {
+        int write = mWrite.get();
+        if (write - mRead.get() > mMask) {
+            return false;
+        }
+        mTurns[write & mMask] = turn.ordinal();
+        mTimes[write & mMask] = time;
+        // Publish the slot only after it's filled in
+        mWrite.lazySet(write + 1);
+        return true;
+    }
+
+    // Called by the consumer
+    // Returns the oldest turn, or null if there isn't one
+    public Turn poll() {
+        int read = mRead.get();
+        if (read == mWrite.get()) {
+            return null;
+        }
+        Turn turn = TURNS[mTurns[read & mMask]];
+        mLastTime = mTimes[read & mMask];
+        mRead.lazySet(read + 1);
+        return turn;
+    }
+
+    // Called by the consumer after poll()
+    public long getLastTime() {
+        return mLastTime;
+    }
+
+    // Called by the consumer to throw away everything waiting
+    public void clear() {
+        mRead.lazySet(mWrite.get());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.myapplication.core;
+
+// Counts how many times took how long, in nanoseconds.
+// Small times get a bucket each, bigger ones share buckets that
+// double in size every 32 buckets, so every time is kept to about 3%
+// in a fixed array and recording never allocates.
+// Meant to be recorded into by one thread.
+// Other threads can read it, but only get a rough picture
+// while it's being recorded into
+public class LatencyHistogram {
+
+    // 32 buckets per doubling
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    // Times up to this are each counted exactly
+    private static final long LINEAR_LIMIT = 2 * SUB_COUNT;
+
+    // Anything longer than about 18 minutes is counted as that
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_NANOS = (1L << MAX_EXPONENT) - 1;
+
+    private static final int BUCKET_COUNT = bucketOf(MAX_NANOS) + 1;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mTotal;
+    private long mMax;
+
+    // Add one time, negative times count as 0
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_NANOS));
+        mCounts[bucketOf(value)]++;
+        mCount++;
+        mTotal += value;
+        if (value > mMax) {
+            mMax = value;
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] = 0;
+        }
+        mCount = 0;
+        mTotal = 0;
+        mMax = 0;
+    }
+
+    // Make this a copy of other, for handing to another thread
+    public void copyFrom(LatencyHistogram other) {
+        System.arraycopy(other.mCounts, 0, mCounts, 0, BUCKET_COUNT);
+        mCount = other.mCount;
+        mTotal = other.mTotal;
+        mMax = other.mMax;
+    }
+
+    // The time that percentile out of 100 of the recorded times are
+    // at or under, rounded up to the end of its bucket
+    // 0 if nothing has been recorded
+    public long getPercentile(double percentile) {
+        long count = mCount;
+        if (count == 0) {
+            return 0;
+        }
+        // The rank of the time we want, from 1
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                return Math.min(getBucketMax(i), mMax);
+            }
+        }
+        return mMax;
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    public long getMean() {
+        return mCount == 0 ? 0 : mTotal / mCount;
+    }
+
+    // For writing the buckets out
+    public static int getBucketCount() {
+        return BUCKET_COUNT;
+    }
+
+    public long getCountAt(int bucket) {
+        return mCounts[bucket];
+    }
+
+    // The longest time that goes in the bucket
+    public static long getBucketMax(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        // Undo bucketOf
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long mantissa = bucket % SUB_COUNT + SUB_COUNT;
+        return ((mantissa + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    // The bucket is how many doublings the value is past the linear part,
+    // then which 32nd of that doubling it is in
+    private static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return shift * SUB_COUNT + (int) (value >>> shift);
+    }
+}
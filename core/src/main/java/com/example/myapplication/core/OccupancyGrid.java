@@ -0,0 +1,126 @@
+package com.example.myapplication.core;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+// One bit per grid cell, set while a snake segment is on it.
+// Lets the snake check walls and its own body in O(1)
+// instead of scanning every segment.
+// The apple spawns from the free cells kept alongside it
+public class OccupancyGrid {
+
+    // Apples never spawn in the first row or column
+    private static final int SPAWN_MARGIN = 1;
+
+    private final int mWidth;
+    private final int mHeight;
+
+    // 64 cells per word, row by row
+    private final long[] mWords;
+
+    // Kept in step with mWords
+    private final FreeCellIndex mFreeCells;
+
+    public OccupancyGrid(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mWords = new long[(width * height + 63) >>> 6];
+        mFreeCells = new FreeCellIndex(width, height, SPAWN_MARGIN);
+    }
+
+    public FreeCellIndex getFreeCells() {
+        return mFreeCells;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    // Is the cell on the board at all?
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < mWidth && y >= 0 && y < mHeight;
+    }
+
+    // Cells off the board always count as empty
+    public boolean isOccupied(int x, int y) {
+        if (!contains(x, y)) {
+            return false;
+        }
+        int cell = y * mWidth + x;
+        return (mWords[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    // Copy the bits into words, which must be getWordCount() long
+    // Used to hand the board to another thread
+    public void copyWords(long[] words) {
+        System.arraycopy(mWords, 0, words, 0, mWords.length);
+    }
+
+    public int getWordCount() {
+        return mWords.length;
+    }
+
+    public void set(int x, int y) {
+        if (contains(x, y) && !isOccupied(x, y)) {
+            int cell = y * mWidth + x;
+            mWords[cell >>> 6] |= 1L << cell;
+            mFreeCells.occupy(x, y);
+        }
+    }
+
+    public void clear(int x, int y) {
+        if (isOccupied(x, y)) {
+            int cell = y * mWidth + x;
+            mWords[cell >>> 6] &= ~(1L << cell);
+            mFreeCells.release(x, y);
+        }
+    }
+
+    // How many bytes save() writes
+    int getSaveSize() {
+        return 8 * mWords.length + 4 * mFreeCells.size();
+    }
+
+    // The bits then the free cells, copied in bulk
+    void save(ByteBuffer out) {
+        out.asLongBuffer().put(mWords);
+        out.position(out.position() + 8 * mWords.length);
+        IntBuffer cells = out.asIntBuffer();
+        mFreeCells.save(cells);
+        out.position(out.position() + 4 * cells.position());
+    }
+
+    // Put back what save() wrote, freeCount being the free cells it had
+    // Returns false, with the board cleared, if it doesn't make sense
+    boolean restore(ByteBuffer in, int freeCount) {
+        in.asLongBuffer().get(mWords);
+        in.position(in.position() + 8 * mWords.length);
+        IntBuffer cells = in.asIntBuffer();
+        boolean restored = mFreeCells.restore(cells, freeCount) && mFreeCells.isInStepWith(this);
+        in.position(in.position() + 4 * cells.position());
+        if (!restored) {
+            clearAll();
+        }
+        return restored;
+    }
+
+    // How many cells are set, including any stray bits past the last cell
+    int countOccupied() {
+        int count = 0;
+        for (long word : mWords) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public void clearAll() {
+        for (int i = 0; i < mWords.length; i++) {
+            mWords[i] = 0;
+        }
+        mFreeCells.reset();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.myapplication.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+// A recorded game, read back from what ReplayWriter wrote.
+//
+// The format, all numbers big endian:
+//   "SNKR", a version byte, the apple seed as 8 bytes,
+//   then the board width, height and eat reach as varints
+//   then records until the end of the file, each one a varint of
+//   (ticks since the last record << 2) | kind
+//   kind 0 and 1 are a left and a right turn on that tick,
+//   2 and 3 are a checkpoint and the end of the game,
+//   both followed by the game's hash after that tick as 8 bytes
+// A file cut short while the game was running is still readable,
+// it just has no end
+public class Replay {
+
+    static final byte[] MAGIC = {'S', 'N', 'K', 'R'};
+    static final byte VERSION = 1;
+
+    static final int KIND_BITS = 2;
+    static final int KIND_LEFT = 0;
+    static final int KIND_RIGHT = 1;
+    static final int KIND_CHECKPOINT = 2;
+    static final int KIND_END = 3;
+
+    // A 64 bit varint takes at most this many bytes
+    static final int MAX_VARINT_BYTES = 10;
+
+    private long mSeed;
+    private int mWidth;
+    private int mHeight;
+    private int mEatReach;
+
+    // Every record in order, with the tick it's for
+    // and the hash for checkpoints and the end
+    private int mCount;
+    private long[] mTicks = new long[64];
+    private byte[] mKinds = new byte[64];
+    private long[] mHashes = new long[64];
+
+    private Replay() {
+    }
+
+    // Read a whole replay, throws IOException if it isn't one
+    public static Replay read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        buffer.flip();
+        Replay replay = new Replay();
+
+        for (byte b : MAGIC) {
+            if (get(channel, buffer) != b) {
+                throw new IOException("Not a replay");
+            }
+        }
+        int version = get(channel, buffer);
+        if (version != VERSION) {
+            throw new IOException("Unknown replay version " + version);
+        }
+        long seed = 0;
+        for (int i = 0; i < 8; i++) {
+            seed = (seed << 8) | (get(channel, buffer) & 0xFF);
+        }
+        replay.mSeed = seed;
+        replay.mWidth = (int) getVarint(channel, buffer);
+        replay.mHeight = (int) getVarint(channel, buffer);
+        replay.mEatReach = (int) getVarint(channel, buffer);
+
+        long tick = 0;
+        try {
+            while (fill(channel, buffer)) {
+                long record = getVarint(channel, buffer);
+                tick += record >>> KIND_BITS;
+                int kind = (int) (record & ((1 << KIND_BITS) - 1));
+                long hash = 0;
+                if (kind == KIND_CHECKPOINT || kind == KIND_END) {
+                    for (int i = 0; i < 8; i++) {
+                        hash = (hash << 8) | (get(channel, buffer) & 0xFF);
+                    }
+                }
+                replay.add(tick, kind, hash);
+                if (kind == KIND_END) {
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // Cut off part way through a record, keep what came before
+        }
+        return replay;
+    }
+
+    private void add(long tick, int kind, long hash) {
+        if (mCount == mTicks.length) {
+            int size = mCount * 2;
+            mTicks = Arrays.copyOf(mTicks, size);
+            mKinds = Arrays.copyOf(mKinds, size);
+            mHashes = Arrays.copyOf(mHashes, size);
+        }
+        mTicks[mCount] = tick;
+        mKinds[mCount] = (byte) kind;
+        mHashes[mCount] = hash;
+        mCount++;
+    }
+
+    // Is there at least one more byte to read?
+    private static boolean fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte get(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        if (!fill(channel, buffer)) {
+            throw new EOFException();
+        }
+        return buffer.get();
+    }
+
+    private static long getVarint(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = get(channel, buffer);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Bad varint in replay");
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getEatReach() {
+        return mEatReach;
+    }
+
+    public int getRecordCount() {
+        return mCount;
+    }
+
+    public long getTick(int record) {
+        return mTicks[record];
+    }
+
+    // The turn for a turn record, null for a checkpoint or the end
+    public Turn getTurn(int record) {
+        switch (mKinds[record]) {
+            case KIND_LEFT:
+                return Turn.LEFT;
+            case KIND_RIGHT:
+                return Turn.RIGHT;
+            default:
+                return null;
+        }
+    }
+
+    public boolean isCheckpoint(int record) {
+        return mKinds[record] == KIND_CHECKPOINT;
+    }
+
+    public boolean isEnd(int record) {
+        return mKinds[record] == KIND_END;
+    }
+
+    // The hash for a checkpoint or the end
+    public long getHash(int record) {
+        return mHashes[record];
+    }
+
+    // Did the recording get as far as the end of the game?
+    public boolean hasEnd() {
+        return mCount > 0 && isEnd(mCount - 1);
+    }
+}
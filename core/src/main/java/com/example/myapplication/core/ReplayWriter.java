@@ -0,0 +1,105 @@
+package com.example.myapplication.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// Records one game as it's played so it can be played back exactly.
+// The header holds the seed and board, then each turn is stored as
+// how many ticks since the last record, which is usually one byte.
+// A hash of the game is added every so often and at the end,
+// so a replay that plays out differently is caught near where it went wrong.
+// Bytes collect in a buffer and go to the channel when it fills,
+// so recording a tick hardly ever touches the file.
+// See Replay for the format
+public class ReplayWriter {
+
+    // How often to add a checkpoint
+    // Often enough to find where a replay went wrong,
+    // rare enough that hashing a long snake doesn't show
+    public static final int CHECKPOINT_TICKS = 1024;
+
+    private final WritableByteChannel mChannel;
+    private final ByteBuffer mBuffer;
+
+    // The tick of the last record
+    private long mLastTick;
+
+    // bufferSize must have room for the header
+    public ReplayWriter(WritableByteChannel channel, int bufferSize) {
+        mChannel = channel;
+        mBuffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    // Write the header, once before any ticks
+    public void begin(long seed, int width, int height, int eatReach) throws IOException {
+        mBuffer.put(Replay.MAGIC);
+        mBuffer.put(Replay.VERSION);
+        mBuffer.putLong(seed);
+        putVarint(width);
+        putVarint(height);
+        putVarint(eatReach);
+        mLastTick = 0;
+    }
+
+    // Record the turn fed to the tick that will make getTicks() equal tick
+    // Turn.NONE isn't recorded, it's what every other tick gets
+    public void turn(long tick, Turn turn) throws IOException {
+        if (turn == Turn.LEFT) {
+            record(tick, Replay.KIND_LEFT);
+        } else if (turn == Turn.RIGHT) {
+            record(tick, Replay.KIND_RIGHT);
+        }
+    }
+
+    // Record the game's hash after tick, to check a playback against
+    public void checkpoint(long tick, long hash) throws IOException {
+        record(tick, Replay.KIND_CHECKPOINT);
+        putLong(hash);
+    }
+
+    // Record that the game ended after tick with this hash
+    public void end(long tick, long hash) throws IOException {
+        record(tick, Replay.KIND_END);
+        putLong(hash);
+    }
+
+    // Write out whatever is buffered
+    public void flush() throws IOException {
+        mBuffer.flip();
+        while (mBuffer.hasRemaining()) {
+            mChannel.write(mBuffer);
+        }
+        mBuffer.clear();
+    }
+
+    public void close() throws IOException {
+        flush();
+        mChannel.close();
+    }
+
+    // Each record starts with the ticks since the last one and its kind
+    private void record(long tick, int kind) throws IOException {
+        putVarint(((tick - mLastTick) << Replay.KIND_BITS) | kind);
+        mLastTick = tick;
+    }
+
+    // Seven bits a byte, low bits first, the top bit set on all but the last
+    private void putVarint(long value) throws IOException {
+        if (mBuffer.remaining() < Replay.MAX_VARINT_BYTES) {
+            flush();
+        }
+        while ((value & ~0x7FL) != 0) {
+            mBuffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        mBuffer.put((byte) value);
+    }
+
+    private void putLong(long value) throws IOException {
+        if (mBuffer.remaining() < 8) {
+            flush();
+        }
+        mBuffer.putLong(value);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.myapplication.core;
+
+import java.util.Random;
+
+// The same numbers as java.util.Random from the same seed,
+// but the state can be read and put back, so a saved game
+// carries on spawning apples exactly where it would have.
+// Uses the generator Random documents, so seeds recorded
+// before still play back the same
+public class SavableRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Set by setSeed, which Random's constructor calls,
+    // so it mustn't be given a value here
+    private long mState;
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        mState = (seed ^ MULTIPLIER) & MASK;
+        // Random keeps a spare gaussian that the new seed must throw away
+        super.setSeed(seed);
+    }
+
+    @Override
+    protected int next(int bits) {
+        mState = (mState * MULTIPLIER + ADDEND) & MASK;
+        return (int) (mState >>> (48 - bits));
+    }
+
+    // All 48 bits of state
+    public long getState() {
+        return mState;
+    }
+
+    public void setState(long state) {
+        mState = state & MASK;
+    }
+}
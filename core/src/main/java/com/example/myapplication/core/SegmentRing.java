@@ -0,0 +1,115 @@
+package com.example.myapplication.core;
+
+import java.nio.IntBuffer;
+
+// The snake body as a circular buffer of packed grid cells.
+// Index 0 is the head and size() - 1 is the tail.
+// Adding a head and dropping the tail are both O(1)
+// and don't create any objects
+public class SegmentRing {
+
+    // Each cell holds x in the high 16 bits and y in the low 16 bits
+    private int[] mCells;
+
+    // Where the head lives in mCells
+    private int mHead;
+
+    // How many segments are in use
+    private int mSize;
+
+    public SegmentRing(int capacity) {
+        mCells = new int[Math.max(capacity, 1)];
+    }
+
+    // Pack a grid position into one int
+    // Works for anything that fits in a short, including -1 off the edge
+    public static int pack(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    public static int unpackX(int cell) {
+        return cell >> 16;
+    }
+
+    public static int unpackY(int cell) {
+        return (short) cell;
+    }
+
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    // The packed cell of segment i, counting back from the head
+    public int get(int i) {
+        int index = mHead + i;
+        if (index >= mCells.length) {
+            index -= mCells.length;
+        }
+        return mCells[index];
+    }
+
+    public int getX(int i) {
+        return unpackX(get(i));
+    }
+
+    public int getY(int i) {
+        return unpackY(get(i));
+    }
+
+    // Put a new head in front of the current one
+    public void addHead(int cell) {
+        if (mSize == mCells.length) {
+            grow();
+        }
+        mHead--;
+        if (mHead < 0) {
+            mHead += mCells.length;
+        }
+        mCells[mHead] = cell;
+        mSize++;
+    }
+
+    // Forget the last segment and return where it was
+    public int removeTail() {
+        int tail = get(mSize - 1);
+        mSize--;
+        return tail;
+    }
+
+    // Copy the cells from the head to the tail into out,
+    // the ring is at most two runs of the array
+    void save(IntBuffer out) {
+        int first = Math.min(mSize, mCells.length - mHead);
+        out.put(mCells, mHead, first);
+        out.put(mCells, 0, mSize - first);
+    }
+
+    // Replace the cells with count read from the head to the tail
+    void restore(IntBuffer in, int count) {
+        if (count > mCells.length) {
+            mCells = new int[count];
+        }
+        in.get(mCells, 0, count);
+        mHead = 0;
+        mSize = count;
+    }
+
+    // Only happens if the snake outgrows the board size it was made for
+    private void grow() {
+        int[] cells = new int[mCells.length * 2];
+        for (int i = 0; i < mSize; i++) {
+            cells[i] = get(i);
+        }
+        mCells = cells;
+        mHead = 0;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.myapplication.core;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+// The rules for one snake on the grid.
+// Knows nothing about bitmaps or the screen
+public class SnakeBody {
+
+    // The location in the grid of all the segments
+    // packed into a ring so moving doesn't shift the whole body
+    private final SegmentRing mSegments;
+
+    // Which cells the body is covering
+    private final OccupancyGrid mBoard;
+
+    // Start by heading to the right
+    private Heading mHeading = Heading.RIGHT;
+
+    // How many ticks the tail should stay put for
+    // after eating an apple
+    private int mGrowth;
+
+    // Where the tail was before the last move
+    // Lets the renderer slide each segment between ticks
+    private int mLastTail;
+
+    // Worked out once per move so the renderer
+    // can ask as often as it likes
+    private volatile boolean mDead;
+    private DeathCause mDeathCause = DeathCause.NONE;
+
+    public SnakeBody(OccupancyGrid board) {
+        mBoard = board;
+
+        // Room for a snake that fills the whole grid
+        mSegments = new SegmentRing(board.getWidth() * board.getHeight() + 1);
+    }
+
+    // Get the snake ready for a new game
+    // with a single segment in the middle of the board
+    public void reset() {
+        mHeading = Heading.RIGHT;
+        mSegments.clear();
+        mBoard.clearAll();
+        mGrowth = 0;
+        mDead = false;
+        mDeathCause = DeathCause.NONE;
+
+        int x = mBoard.getWidth() / 2;
+        int y = mBoard.getHeight() / 2;
+        mSegments.addHead(SegmentRing.pack(x, y));
+        mBoard.set(x, y);
+        mLastTail = SegmentRing.pack(x, y);
+    }
+
+    // Copy the cells from the head to the tail into out
+    void save(ByteBuffer out) {
+        IntBuffer cells = out.asIntBuffer();
+        mSegments.save(cells);
+        out.position(out.position() + 4 * cells.position());
+    }
+
+    // Put a saved snake back, length cells read from the head to the tail
+    // The board is restored separately
+    void restore(Heading heading, int growth, DeathCause deathCause,
+                 ByteBuffer in, int length) {
+        mHeading = heading;
+        mGrowth = growth;
+        mDeathCause = deathCause;
+        mDead = deathCause != DeathCause.NONE;
+        IntBuffer cells = in.asIntBuffer();
+        mSegments.restore(cells, length);
+        in.position(in.position() + 4 * length);
+        // Nothing slides on the first frame back
+        mLastTail = mSegments.get(length - 1);
+    }
+
+    int getGrowth() {
+        return mGrowth;
+    }
+
+    public void turn(Turn turn) {
+        mHeading = mHeading.turn(turn);
+    }
+
+    // Move one cell in the current heading
+    public void move() {
+        int x = mSegments.getX(0);
+        int y = mSegments.getY(0);
+        switch (mHeading) {
+            case UP:
+                y--;
+                break;
+            case RIGHT:
+                x++;
+                break;
+            case DOWN:
+                y++;
+                break;
+            case LEFT:
+                x--;
+                break;
+        }
+
+        // Move the body by dropping the tail,
+        // unless the snake has just eaten
+        if (mGrowth > 0) {
+            mGrowth--;
+            mLastTail = mSegments.get(mSegments.size() - 1);
+        } else {
+            mLastTail = mSegments.removeTail();
+            mBoard.clear(SegmentRing.unpackX(mLastTail), SegmentRing.unpackY(mLastTail));
+        }
+
+        // Hit any of the edges or eaten itself?
+        if (!mBoard.contains(x, y)) {
+            mDeathCause = DeathCause.WALL;
+        } else if (mBoard.isOccupied(x, y)) {
+            mDeathCause = DeathCause.BODY;
+        }
+        mDead = mDeathCause != DeathCause.NONE;
+
+        mSegments.addHead(SegmentRing.pack(x, y));
+        mBoard.set(x, y);
+    }
+
+    // Keep the tail where it is on the next move
+    public void grow() {
+        mGrowth++;
+    }
+
+    public boolean isDead() {
+        return mDead;
+    }
+
+    public DeathCause getDeathCause() {
+        return mDeathCause;
+    }
+
+    public Heading getHeading() {
+        return mHeading;
+    }
+
+    public SegmentRing getSegments() {
+        return mSegments;
+    }
+
+    // Where segment i was before the last move
+    // Every segment moved into the cell of the one in front of it
+    public int getPrevious(int i) {
+        return i + 1 < mSegments.size() ? mSegments.get(i + 1) : mLastTail;
+    }
+
+    public int getHeadX() {
+        return mSegments.getX(0);
+    }
+
+    public int getHeadY() {
+        return mSegments.getY(0);
+    }
+
+    public int length() {
+        return mSegments.size();
+    }
+}
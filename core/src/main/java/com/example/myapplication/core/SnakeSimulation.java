@@ -0,0 +1,358 @@
+package com.example.myapplication.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// All the game rules in one place.
+// The Android classes draw it and feed it input,
+// anything else can run it as fast as it likes
+public class SnakeSimulation {
+
+    // What happened during a tick, returned as bit flags
+    public static final int EVENT_ATE = 1;
+    public static final int EVENT_DIED = 2;
+    public static final int EVENT_BOARD_FULL = 4;
+
+    // The entities in the collision grid
+    public static final int ENTITY_SNAKE = 0;
+    public static final int ENTITY_APPLE = 1;
+
+    // A saved game, all numbers little endian
+    // so the cells copy straight in and out on phones and PCs:
+    //   "SNKS" and a version byte,
+    //   the board width, height and eat reach as ints,
+    //   the ticks as a long, the score as an int,
+    //   the apple generator's state as a long, the apple x and y as ints,
+    //   the heading and the death cause as a byte each,
+    //   the growth still to come, the length and the free cell count as ints,
+    //   every segment as a packed int, from the head to the tail,
+    //   the board's occupied bits as longs,
+    //   then every free cell id in the order apples are picked from
+    private static final byte[] SAVE_MAGIC = {'S', 'N', 'K', 'S'};
+    private static final byte SAVE_VERSION = 1;
+    private static final int SAVE_HEADER_BYTES = 59;
+
+    private final OccupancyGrid mBoard;
+    private final SnakeBody mSnake;
+    private final AppleSpawner mApple;
+
+    // How many cells away the head can be and still eat the apple
+    private final int mEatReach;
+
+    // Finds what the head runs into
+    // The head is one handle, the apple covers every cell
+    // the head can eat it from
+    private final CollisionGrid mCollisions;
+    private int mHeadHandle = -1;
+    private final int[] mAppleHandles;
+    private int mAppleHandleCount;
+
+    // Set by the collision handler during a tick
+    private boolean mHitApple;
+    private final CollisionHandler mCollisionHandler = new CollisionHandler() {
+        @Override
+        public void onCollision(int mover, int other, int x, int y) {
+            if (mover == ENTITY_SNAKE && other == ENTITY_APPLE) {
+                mHitApple = true;
+            }
+        }
+    };
+
+    // How many points does the player have
+    private int mScore;
+
+    // How many ticks since the game started
+    private long mTicks;
+
+    // Times each part of a tick when set, null the rest of the time
+    private TraceRecorder mTrace;
+    private int mTraceMove;
+    private int mTraceCollide;
+    private int mTraceSpawn;
+
+    public SnakeSimulation(int width, int height, int eatReach) {
+        mBoard = new OccupancyGrid(width, height);
+        mSnake = new SnakeBody(mBoard);
+        mApple = new AppleSpawner(mBoard);
+        mEatReach = eatReach;
+
+        int reach = 2 * eatReach + 1;
+        mAppleHandles = new int[Math.min(width, reach) * Math.min(height, reach)];
+        mCollisions = new CollisionGrid(width, height, mAppleHandles.length + 1);
+    }
+
+    public void setSeed(long seed) {
+        mApple.setSeed(seed);
+    }
+
+    // Time the move, collision and spawn parts of every tick into trace
+    // Only call between ticks, null stops tracing
+    public void setTraceRecorder(TraceRecorder trace) {
+        if (trace != null) {
+            mTraceMove = trace.addName("move");
+            mTraceCollide = trace.addName("collide");
+            mTraceSpawn = trace.addName("spawn");
+        }
+        mTrace = trace;
+    }
+
+    // Called to start a new game
+    public void newGame() {
+        mSnake.reset();
+        mCollisions.clear();
+        mAppleHandleCount = 0;
+        mHeadHandle = mCollisions.add(ENTITY_SNAKE, mSnake.getHeadX(), mSnake.getHeadY());
+        spawnApple();
+        mScore = 0;
+        mTicks = 0;
+    }
+
+    // Advance the game by one step and report what happened
+    public int tick(Turn input) {
+        int events = 0;
+        mTicks++;
+        TraceRecorder trace = mTrace;
+
+        // Turn if asked, then move the snake
+        long start = trace != null ? trace.begin(mTraceMove) : 0;
+        mSnake.turn(input);
+        mSnake.move();
+        mCollisions.move(mHeadHandle, mSnake.getHeadX(), mSnake.getHeadY());
+        if (trace != null) {
+            trace.end(mTraceMove, start);
+            start = trace.begin(mTraceCollide);
+        }
+
+        // Find what the head ran into, then act on it
+        mHitApple = false;
+        mCollisions.detect(mCollisionHandler);
+        if (trace != null) {
+            trace.end(mTraceCollide, start);
+        }
+
+        // Did the head of the snake eat the apple?
+        if (mHitApple) {
+            mSnake.grow();
+            mScore++;
+            events |= EVENT_ATE;
+
+            start = trace != null ? trace.begin(mTraceSpawn) : 0;
+            boolean spawned = spawnApple();
+            if (trace != null) {
+                trace.end(mTraceSpawn, start);
+            }
+            if (!spawned) {
+                // The snake fills the board, nothing left to eat
+                events |= EVENT_BOARD_FULL;
+            }
+        }
+
+        // Did the snake die?
+        if (mSnake.isDead()) {
+            events |= EVENT_DIED;
+        }
+
+        return events;
+    }
+
+    // Move the apple and the cells it can be eaten from
+    private boolean spawnApple() {
+        for (int i = 0; i < mAppleHandleCount; i++) {
+            mCollisions.remove(mAppleHandles[i]);
+        }
+        mAppleHandleCount = 0;
+        if (!mApple.spawn()) {
+            return false;
+        }
+        addAppleHandles();
+        return true;
+    }
+
+    private void addAppleHandles() {
+        int x = mApple.getX();
+        int y = mApple.getY();
+        int right = Math.min(mBoard.getWidth() - 1, x + mEatReach);
+        int bottom = Math.min(mBoard.getHeight() - 1, y + mEatReach);
+        for (int cy = Math.max(0, y - mEatReach); cy <= bottom; cy++) {
+            for (int cx = Math.max(0, x - mEatReach); cx <= right; cx++) {
+                mAppleHandles[mAppleHandleCount++] = mCollisions.add(ENTITY_APPLE, cx, cy);
+            }
+        }
+    }
+
+    // How many bytes save() will write
+    public int getSaveSize() {
+        return SAVE_HEADER_BYTES + 4 * mSnake.length() + mBoard.getSaveSize();
+    }
+
+    // Write everything needed to carry on from this tick
+    // out must have getSaveSize() bytes left, and is switched to little endian
+    public void save(ByteBuffer out) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.put(SAVE_MAGIC);
+        out.put(SAVE_VERSION);
+        out.putInt(mBoard.getWidth());
+        out.putInt(mBoard.getHeight());
+        out.putInt(mEatReach);
+        out.putLong(mTicks);
+        out.putInt(mScore);
+        out.putLong(mApple.getRandomState());
+        out.putInt(mApple.getX());
+        out.putInt(mApple.getY());
+        out.put((byte) mSnake.getHeading().ordinal());
+        out.put((byte) mSnake.getDeathCause().ordinal());
+        out.putInt(mSnake.getGrowth());
+        out.putInt(mSnake.length());
+        out.putInt(mBoard.getFreeCells().size());
+        mSnake.save(out);
+        mBoard.save(out);
+    }
+
+    // Carry on from what save() wrote, in place of newGame()
+    // in is switched to little endian
+    // Returns false if it isn't a game saved on a board like this one,
+    // a new game is started if it got as far as changing anything
+    public boolean restore(ByteBuffer in) {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < SAVE_HEADER_BYTES) {
+            return false;
+        }
+        for (byte b : SAVE_MAGIC) {
+            if (in.get() != b) {
+                return false;
+            }
+        }
+        if (in.get() != SAVE_VERSION
+                || in.getInt() != mBoard.getWidth()
+                || in.getInt() != mBoard.getHeight()
+                || in.getInt() != mEatReach) {
+            return false;
+        }
+        long ticks = in.getLong();
+        int score = in.getInt();
+        long randomState = in.getLong();
+        int appleX = in.getInt();
+        int appleY = in.getInt();
+        int heading = in.get();
+        int deathCause = in.get();
+        int growth = in.getInt();
+        int length = in.getInt();
+        int freeCount = in.getInt();
+        int cells = mBoard.getWidth() * mBoard.getHeight();
+        if (heading < 0 || heading >= Heading.values().length
+                || deathCause < 0 || deathCause >= DeathCause.values().length
+                || growth < 0 || length < 1 || length > cells + 1
+                || freeCount < 0 || freeCount > cells
+                || in.remaining() < 4 * length + 8 * mBoard.getWordCount() + 4 * freeCount) {
+            return false;
+        }
+
+        mSnake.restore(Heading.values()[heading], growth, DeathCause.values()[deathCause],
+                in, length);
+        mApple.restore(appleX, appleY, randomState);
+        if (!mBoard.restore(in, freeCount) || !isRestoredGameValid()) {
+            newGame();
+            return false;
+        }
+        mScore = score;
+        mTicks = ticks;
+
+        mCollisions.clear();
+        mAppleHandleCount = 0;
+        mHeadHandle = mCollisions.add(ENTITY_SNAKE, mSnake.getHeadX(), mSnake.getHeadY());
+        if (mApple.isOnBoard()) {
+            addAppleHandles();
+        }
+        return true;
+    }
+
+    // Does what restore() read make a game that could have been played?
+    // A save that was cut short or changed can get past the header checks
+    private boolean isRestoredGameValid() {
+        SegmentRing segments = mSnake.getSegments();
+        int width = mBoard.getWidth();
+        boolean[] seen = new boolean[width * mBoard.getHeight()];
+        // A dead head can be off the board or on the body
+        int first = mSnake.isDead() ? 1 : 0;
+        for (int i = 0; i < segments.size(); i++) {
+            int x = segments.getX(i);
+            int y = segments.getY(i);
+            if (i > 0 && Math.abs(x - segments.getX(i - 1)) + Math.abs(y - segments.getY(i - 1)) != 1) {
+                return false;
+            }
+            if (i < first) {
+                continue;
+            }
+            if (!mBoard.isOccupied(x, y) || seen[y * width + x]) {
+                return false;
+            }
+            seen[y * width + x] = true;
+        }
+        // Nothing on the board but the body
+        if (mBoard.countOccupied() != segments.size() - first) {
+            return false;
+        }
+        // The apple is on a free cell, or off the board once there are none
+        if (mApple.isOnBoard()) {
+            return mBoard.getFreeCells().isFree(mApple.getX(), mApple.getY());
+        }
+        return mBoard.getFreeCells().size() == 0;
+    }
+
+    // Nothing more can happen until a new game
+    public boolean isOver() {
+        return mSnake.isDead() || !mApple.isOnBoard();
+    }
+
+    // A 64 bit FNV-1a hash of everything that decides what happens next
+    // Two games with the same hash are almost certainly in the same state
+    // Costs the length of the snake, so call it now and then, not every tick
+    public long getStateHash() {
+        long hash = 0xcbf29ce484222325L;
+        SegmentRing segments = mSnake.getSegments();
+        hash = mix(hash, segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            hash = mix(hash, segments.get(i));
+        }
+        hash = mix(hash, mSnake.getHeading().ordinal());
+        hash = mix(hash, mSnake.isDead() ? 1 : 0);
+        hash = mix(hash, mApple.getX());
+        hash = mix(hash, mApple.getY());
+        hash = mix(hash, mScore);
+        hash = mix(hash, mTicks);
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= value & 0xFF;
+            hash *= 0x100000001b3L;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    public OccupancyGrid getBoard() {
+        return mBoard;
+    }
+
+    public SnakeBody getSnake() {
+        return mSnake;
+    }
+
+    public AppleSpawner getApple() {
+        return mApple;
+    }
+
+    public int getEatReach() {
+        return mEatReach;
+    }
+
+    public int getScore() {
+        return mScore;
+    }
+
+    public long getTicks() {
+        return mTicks;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.myapplication.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hands snapshots from the simulation thread to the render thread
+// with three buffers, so neither side ever waits for the other.
+// The producer fills the back buffer and swaps it into the middle.
+// The consumer swaps the middle out when there is a newer one there
+public class SnapshotExchange {
+
+    // Set in mMiddle when it holds a snapshot the consumer hasn't seen
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final GameSnapshot[] mBuffers = {
+            new GameSnapshot(), new GameSnapshot(), new GameSnapshot()
+    };
+
+    // Only the producer touches mBack and only the consumer touches mFront
+    private int mBack = 0;
+    private int mFront = 1;
+    private final AtomicInteger mMiddle = new AtomicInteger(2);
+
+    // Called by the producer to get the snapshot to fill in
+    public GameSnapshot getBack() {
+        return mBuffers[mBack];
+    }
+
+    // Called by the producer once the back snapshot is complete
+    public void publish() {
+        mBack = mMiddle.getAndSet(mBack | FRESH) & INDEX;
+    }
+
+    // Called by the consumer
+    // Returns the newest complete snapshot, which stays
+    // untouched until the next call
+    public GameSnapshot acquire() {
+        if ((mMiddle.get() & FRESH) != 0) {
+            mFront = mMiddle.getAndSet(mFront) & INDEX;
+        }
+        return mBuffers[mFront];
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.myapplication.core;
+
+// Things on the board, each with an int id, sorted into square buckets
+// of cells so finding the nearest one only looks at nearby buckets.
+// Each bucket is a linked list threaded through flat arrays,
+// so moving things around never allocates
+public class SpatialHash {
+
+    private final int mBucketSize;
+    private final int mColumns;
+    private final int mRows;
+
+    // The first id in each bucket, or -1
+    private final int[] mFirst;
+
+    // Per id: the neighbours in its bucket's list,
+    // which bucket it is in (-1 for none) and where it is
+    private final int[] mNext;
+    private final int[] mPrevious;
+    private final int[] mBucket;
+    private final int[] mX;
+    private final int[] mY;
+
+    // ids go from 0 to capacity - 1
+    public SpatialHash(int width, int height, int bucketSize, int capacity) {
+        mBucketSize = bucketSize;
+        mColumns = (width + bucketSize - 1) / bucketSize;
+        mRows = (height + bucketSize - 1) / bucketSize;
+        mFirst = new int[mColumns * mRows];
+        mNext = new int[capacity];
+        mPrevious = new int[capacity];
+        mBucket = new int[capacity];
+        mX = new int[capacity];
+        mY = new int[capacity];
+        clear();
+    }
+
+    public void clear() {
+        for (int i = 0; i < mFirst.length; i++) {
+            mFirst[i] = -1;
+        }
+        for (int i = 0; i < mBucket.length; i++) {
+            mBucket[i] = -1;
+        }
+    }
+
+    // Put id at x, y, moving it if it was already somewhere
+    public void insert(int id, int x, int y) {
+        remove(id);
+        int bucket = (y / mBucketSize) * mColumns + x / mBucketSize;
+        mX[id] = x;
+        mY[id] = y;
+        mBucket[id] = bucket;
+        mPrevious[id] = -1;
+        mNext[id] = mFirst[bucket];
+        if (mFirst[bucket] >= 0) {
+            mPrevious[mFirst[bucket]] = id;
+        }
+        mFirst[bucket] = id;
+    }
+
+    public void remove(int id) {
+        int bucket = mBucket[id];
+        if (bucket < 0) {
+            return;
+        }
+        if (mPrevious[id] >= 0) {
+            mNext[mPrevious[id]] = mNext[id];
+        } else {
+            mFirst[bucket] = mNext[id];
+        }
+        if (mNext[id] >= 0) {
+            mPrevious[mNext[id]] = mPrevious[id];
+        }
+        mBucket[id] = -1;
+    }
+
+    // The id closest to x, y counting steps across and down, or -1 if empty
+    // Works outwards a ring of buckets at a time and stops once
+    // no further ring could hold anything closer
+    public int findNearest(int x, int y) {
+        int column = x / mBucketSize;
+        int row = y / mBucketSize;
+        int maxRing = Math.max(mColumns, mRows);
+        int nearest = -1;
+        int nearestDistance = Integer.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every cell in this ring is at least this far away
+            if (nearest >= 0 && (ring - 1) * mBucketSize >= nearestDistance) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= mRows) {
+                    continue;
+                }
+                // Only the edges of the ring, the inside was done already
+                boolean edgeRow = r == row - ring || r == row + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    if (c < 0 || c >= mColumns) {
+                        continue;
+                    }
+                    for (int id = mFirst[r * mColumns + c]; id >= 0; id = mNext[id]) {
+                        int distance = Math.abs(mX[id] - x) + Math.abs(mY[id] - y);
+                        if (distance < nearestDistance || (distance == nearestDistance && id < nearest)) {
+                            nearest = id;
+                            nearestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.myapplication.core;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Times named sections of code on any thread into a fixed ring of events,
+// keeping the newest when it fills, and writes them out as Chrome
+// trace event JSON for chrome://tracing or Perfetto.
+// Names are added up front and sections refer to them by id,
+// so timing a section never allocates.
+// Needs nothing from Android, so headless runs can be traced too
+public class TraceRecorder {
+
+    // Most names and threads one recorder keeps track of
+    private static final int MAX_NAMES = 64;
+    private static final int MAX_THREADS = 16;
+
+    private final String[] mNames = new String[MAX_NAMES];
+    private int mNameCount;
+
+    // Thread ids and the names they were given
+    private final long[] mThreadIds = new long[MAX_THREADS];
+    private final String[] mThreadNames = new String[MAX_THREADS];
+    private int mThreadCount;
+
+    // The ring, one slot per finished section
+    private final int mCapacity;
+    private final int[] mEventNames;
+    private final long[] mEventThreads;
+    private final long[] mEventStarts;
+    private final long[] mEventDurations;
+    // How many events have ever been recorded
+    private long mRecorded;
+
+    // Also told about every section, if set
+    private volatile TraceSections mSections;
+
+    public TraceRecorder(int capacity) {
+        mCapacity = capacity;
+        mEventNames = new int[capacity];
+        mEventThreads = new long[capacity];
+        mEventStarts = new long[capacity];
+        mEventDurations = new long[capacity];
+    }
+
+    // Add a section name and return its id
+    // The same name gets the same id
+    public synchronized int addName(String name) {
+        for (int i = 0; i < mNameCount; i++) {
+            if (mNames[i].equals(name)) {
+                return i;
+            }
+        }
+        if (mNameCount == MAX_NAMES) {
+            throw new IllegalStateException("Too many trace names");
+        }
+        mNames[mNameCount] = name;
+        return mNameCount++;
+    }
+
+    // Call once from each thread that records, so the trace can name it
+    public synchronized void nameCurrentThread() {
+        long id = Thread.currentThread().getId();
+        for (int i = 0; i < mThreadCount; i++) {
+            if (mThreadIds[i] == id) {
+                mThreadNames[i] = Thread.currentThread().getName();
+                return;
+            }
+        }
+        if (mThreadCount < MAX_THREADS) {
+            mThreadIds[mThreadCount] = id;
+            mThreadNames[mThreadCount] = Thread.currentThread().getName();
+            mThreadCount++;
+        }
+    }
+
+    public void setSections(TraceSections sections) {
+        mSections = sections;
+    }
+
+    // Start timing a section and return the time to hand to end()
+    public long begin(int name) {
+        TraceSections sections = mSections;
+        if (sections != null) {
+            sections.beginSection(mNames[name]);
+        }
+        return System.nanoTime();
+    }
+
+    // Finish a section started with begin() on this thread
+    public void end(int name, long startNanos) {
+        long now = System.nanoTime();
+        TraceSections sections = mSections;
+        if (sections != null) {
+            sections.endSection();
+        }
+        record(name, Thread.currentThread().getId(), startNanos, now - startNanos);
+    }
+
+    private synchronized void record(int name, long thread, long startNanos, long durationNanos) {
+        int slot = (int) (mRecorded % mCapacity);
+        mEventNames[slot] = name;
+        mEventThreads[slot] = thread;
+        mEventStarts[slot] = startNanos;
+        mEventDurations[slot] = durationNanos;
+        mRecorded++;
+    }
+
+    public synchronized void clear() {
+        mRecorded = 0;
+    }
+
+    // How many events are in the ring
+    public synchronized int getEventCount() {
+        return (int) Math.min(mRecorded, mCapacity);
+    }
+
+    // Write the events in the ring, oldest first
+    // They're copied out first so the threads recording
+    // only wait for the copy, not the writing
+    public void writeJson(Writer out) throws IOException {
+        int count;
+        int first;
+        int[] names;
+        long[] threads;
+        long[] starts;
+        long[] durations;
+        String[] nameList;
+        long[] threadIds;
+        String[] threadNames;
+        synchronized (this) {
+            count = (int) Math.min(mRecorded, mCapacity);
+            first = (int) ((mRecorded - count) % mCapacity);
+            names = mEventNames.clone();
+            threads = mEventThreads.clone();
+            starts = mEventStarts.clone();
+            durations = mEventDurations.clone();
+            nameList = mNames.clone();
+            threadIds = mThreadIds.clone();
+            threadNames = new String[mThreadCount];
+            System.arraycopy(mThreadNames, 0, threadNames, 0, mThreadCount);
+        }
+
+        // Times count from the oldest event so the numbers stay small
+        long origin = count > 0 ? starts[first] : 0;
+        for (int i = 0; i < count; i++) {
+            origin = Math.min(origin, starts[(first + i) % mCapacity]);
+        }
+
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean comma = false;
+        for (int i = 0; i < threadNames.length; i++) {
+            if (comma) {
+                out.write(',');
+            }
+            out.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + threadIds[i]
+                    + ",\"args\":{\"name\":\"" + escape(threadNames[i]) + "\"}}");
+            comma = true;
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = (first + i) % mCapacity;
+            if (comma) {
+                out.write(',');
+            }
+            // Complete events, times in microseconds
+            out.write("\n{\"name\":\"" + escape(nameList[names[slot]])
+                    + "\",\"ph\":\"X\",\"pid\":1,\"tid\":" + threads[slot]
+                    + ",\"ts\":" + micros(starts[slot] - origin)
+                    + ",\"dur\":" + micros(durations[slot]) + "}");
+            comma = true;
+        }
+        out.write("\n]}\n");
+        out.flush();
+    }
+
+    // Nanoseconds as microseconds with three decimals
+    private static String micros(long nanos) {
+        long fraction = nanos % 1000;
+        return nanos / 1000 + (fraction < 10 ? ".00" : fraction < 100 ? ".0" : ".") + fraction;
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.myapplication.core;
+
+// Somewhere else to mark the sections TraceRecorder times,
+// such as the platform's own tracing
+// Called on the thread running the section
+public interface TraceSections {
+
+    void beginSection(String name);
+
+    // Ends the latest section begun on this thread
+    void endSection();
+}
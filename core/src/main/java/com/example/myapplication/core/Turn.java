@@ -0,0 +1,6 @@
+package com.example.myapplication.core;
+
+// What the player asked for this tick
+public enum Turn {
+    NONE, LEFT, RIGHT
+}
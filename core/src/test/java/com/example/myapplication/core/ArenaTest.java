@@ -0,0 +1,108 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArenaTest {
+
+    @Test
+    public void twoHeadsClaimingOneCellBothDie() {
+        // A one row board, the heads facing each other with one cell
+        // between them, so going straight is the only safe move for both
+        Arena arena = new Arena(5, 1, 2, 0);
+        place(arena, 0, Heading.RIGHT, 0, SegmentRing.pack(1, 0));
+        place(arena, 1, Heading.LEFT, 0, SegmentRing.pack(3, 0));
+
+        arena.tick(null);
+        assertEquals(2, arena.getDeaths());
+    }
+
+    @Test
+    public void aHeadCanFollowATailThatsLeaving() {
+        Arena arena = new Arena(2, 3, 1, 0);
+        placeCurledUp(arena, 0);
+
+        arena.tick(null);
+        ArenaSnake snake = arena.getSnake(0);
+        assertEquals(0, arena.getDeaths());
+        assertTrue(snake.isAlive());
+        assertEquals(6, snake.length());
+        assertEquals(SegmentRing.pack(0, 0), snake.getSegments().get(0));
+        assertEquals(SegmentRing.pack(1, 0), snake.getSegments().get(5));
+    }
+
+    @Test
+    public void aHeadCantFollowATailThatsGrowing() {
+        Arena arena = new Arena(2, 3, 1, 0);
+        placeCurledUp(arena, 1);
+
+        arena.tick(null);
+        assertEquals(1, arena.getDeaths());
+    }
+
+    @Test
+    public void planningOnAPoolPlaysTheSame() {
+        // More snakes than one planning chunk so the pool splits them
+        Arena alone = new Arena(64, 64, 200, 100);
+        Arena pooled = new Arena(64, 64, 200, 100);
+        alone.reset(9);
+        pooled.reset(9);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < 500; i++) {
+                alone.tick(null);
+                pooled.tick(pool);
+                assertEquals("tick " + i, hash(alone), hash(pooled));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(alone.getDeaths(), pooled.getDeaths());
+        assertEquals(alone.getApplesEaten(), pooled.getApplesEaten());
+        assertTrue(alone.getDeaths() > 0);
+        assertTrue(alone.getApplesEaten() > 0);
+    }
+
+    // Lay snake i out over cells, tail first, and mark them on the board
+    private static void place(Arena arena, int i, Heading heading, int growth, int... cells) {
+        ArenaSnake snake = arena.getSnake(i);
+        snake.spawn(cells[0], heading, growth);
+        for (int j = 1; j < cells.length; j++) {
+            snake.getSegments().addHead(cells[j]);
+        }
+        for (int cell : cells) {
+            arena.getBoard().set(SegmentRing.unpackX(cell), SegmentRing.unpackY(cell));
+        }
+    }
+
+    // Fills a 2 by 3 board, heading up with the tail just ahead
+    // Left is off the board and right is the body, so every move is
+    // blocked at planning time and the snake goes straight for its tail
+    private static void placeCurledUp(Arena arena, int growth) {
+        place(arena, 0, Heading.UP, growth,
+                SegmentRing.pack(0, 0), SegmentRing.pack(1, 0), SegmentRing.pack(1, 1),
+                SegmentRing.pack(1, 2), SegmentRing.pack(0, 2), SegmentRing.pack(0, 1));
+    }
+
+    // Every snake's body and every apple
+    private static long hash(Arena arena) {
+        long hash = 17;
+        for (int i = 0; i < arena.getSnakeCount(); i++) {
+            ArenaSnake snake = arena.getSnake(i);
+            hash = hash * 31 + (snake.isAlive() ? 1 : 0);
+            hash = hash * 31 + snake.getHeading().ordinal();
+            SegmentRing segments = snake.getSegments();
+            for (int j = 0; j < segments.size(); j++) {
+                hash = hash * 31 + segments.get(j);
+            }
+        }
+        for (int i = 0; i < arena.getAppleCount(); i++) {
+            hash = hash * 31 + arena.getApple(i);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AutopilotTest {
+
+    @Test
+    public void fillsAnEvenBoard() {
+        for (long seed = 1; seed <= 50; seed++) {
+            assertFillsTheBoard(8, 8, 0, seed);
+        }
+    }
+
+    @Test
+    public void fillsABoardWithTheCycleOnItsSide() {
+        for (long seed = 1; seed <= 20; seed++) {
+            assertFillsTheBoard(6, 9, 0, seed);
+        }
+    }
+
+    @Test
+    public void fillsTheGamesBoard() {
+        // 40 by 71 with the eat reach the game uses
+        assertFillsTheBoard(40, 71, 2, 1);
+    }
+
+    @Test
+    public void isntStuckAtTheStart() {
+        SnakeSimulation sim = new SnakeSimulation(9, 9, 0);
+        sim.setSeed(1);
+        sim.newGame();
+        Autopilot autopilot = new Autopilot(sim);
+        assertFalse(autopilot.isStuck());
+    }
+
+    private static void assertFillsTheBoard(int width, int height, int reach, long seed) {
+        SnakeSimulation sim = play(width, height, reach, seed);
+        assertFalse("seed " + seed, sim.getSnake().isDead());
+        assertFalse("seed " + seed, sim.getApple().isOnBoard());
+        assertEquals("seed " + seed, 0, sim.getBoard().getFreeCells().size());
+    }
+
+    // Let the autopilot play until the game ends or it gives up
+    private static SnakeSimulation play(int width, int height, int reach, long seed) {
+        SnakeSimulation sim = new SnakeSimulation(width, height, reach);
+        sim.setSeed(seed);
+        sim.newGame();
+        Autopilot autopilot = new Autopilot(sim);
+        while (!sim.isOver() && !autopilot.isStuck()) {
+            sim.tick(autopilot.plan());
+        }
+        assertTrue(sim.isOver());
+        return sim;
+    }
+}
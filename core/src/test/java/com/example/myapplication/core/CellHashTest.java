@@ -0,0 +1,127 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CellHashTest {
+
+    @Test
+    public void collidingCellsAreKeptApart() {
+        CellHash hash = new CellHash(8);
+        int[] cells = collidingCells(hash, 4);
+
+        for (int i = 0; i < cells.length; i++) {
+            hash.put(cells[i], i);
+        }
+        assertEquals(cells.length, hash.size());
+        for (int i = 0; i < cells.length; i++) {
+            assertEquals(i, hash.get(cells[i]));
+        }
+
+        // Replacing a value doesn't add an entry
+        hash.put(cells[2], 20);
+        assertEquals(cells.length, hash.size());
+        assertEquals(20, hash.get(cells[2]));
+    }
+
+    @Test
+    public void removingFromTheMiddleOfARunKeepsTheRest() {
+        CellHash hash = new CellHash(8);
+        int[] cells = collidingCells(hash, 4);
+        for (int i = 0; i < cells.length; i++) {
+            hash.put(cells[i], i);
+        }
+
+        // The later ones have to move back over the gap
+        hash.remove(cells[1]);
+        assertEquals(3, hash.size());
+        assertEquals(-1, hash.get(cells[1]));
+        assertEquals(0, hash.get(cells[0]));
+        assertEquals(2, hash.get(cells[2]));
+        assertEquals(3, hash.get(cells[3]));
+
+        // Removing what isn't there does nothing
+        hash.remove(cells[1]);
+        assertEquals(3, hash.size());
+
+        hash.remove(cells[0]);
+        hash.remove(cells[3]);
+        assertEquals(2, hash.get(cells[2]));
+        assertEquals(1, hash.size());
+    }
+
+    @Test
+    public void matchesAHashMap() {
+        // Small enough that it runs half full and wraps around the end
+        CellHash hash = new CellHash(16);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 100_000; i++) {
+            int cell = SegmentRing.pack(random.nextInt(8), random.nextInt(8));
+            if (random.nextBoolean() && (expected.size() < 16 || expected.containsKey(cell))) {
+                hash.put(cell, i);
+                expected.put(cell, i);
+            } else {
+                hash.remove(cell);
+                expected.remove(cell);
+            }
+            assertEquals(expected.size(), hash.size());
+            Integer value = expected.get(cell);
+            assertEquals(value != null ? value : -1, hash.get(cell));
+        }
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                int cell = SegmentRing.pack(x, y);
+                Integer value = expected.get(cell);
+                assertEquals(value != null ? value : -1, hash.get(cell));
+            }
+        }
+    }
+
+    @Test
+    public void clearEmptiesIt() {
+        CellHash hash = new CellHash(4);
+        hash.put(1, 10);
+        hash.put(2, 20);
+        hash.clear();
+        assertEquals(0, hash.size());
+        assertEquals(-1, hash.get(1));
+        assertEquals(-1, hash.get(2));
+    }
+
+    @Test
+    public void aFullHashThrows() {
+        CellHash hash = new CellHash(2);
+        int count = 0;
+        try {
+            for (int cell = 0; cell < 100; cell++) {
+                hash.put(cell, cell);
+                count++;
+            }
+            fail();
+        } catch (IllegalStateException expected) {
+            // At least what it was made for fits
+            assertTrue(count >= 2);
+        }
+    }
+
+    // The first count cells that start probing at the same slot
+    private static int[] collidingCells(CellHash hash, int count) {
+        int[] cells = new int[count];
+        int slot = hash.slotFor(0);
+        int found = 0;
+        for (int cell = 0; found < count; cell++) {
+            if (hash.slotFor(cell) == slot) {
+                cells[found++] = cell;
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CollisionGridTest {
+
+    @Test
+    public void aPairThatBothMovedIsReportedOnce() {
+        CollisionGrid grid = new CollisionGrid(4, 4, 8);
+        int low = grid.add(10, 0, 0);
+        int high = grid.add(20, 2, 0);
+        assertTrue(low < high);
+
+        // Queue the higher handle first, the lower one is still the mover
+        grid.move(high, 1, 0);
+        grid.move(low, 1, 0);
+        Recorder recorder = new Recorder();
+        assertEquals(1, grid.detect(recorder));
+        assertEquals("10 hit 20 at 1,0", recorder.only());
+
+        // The moves are forgotten
+        assertEquals(0, grid.detect(new Recorder()));
+    }
+
+    @Test
+    public void onlyTheMoverIsReportedAgainstOneThatStayed() {
+        CollisionGrid grid = new CollisionGrid(4, 4, 8);
+        grid.add(10, 1, 1);
+        int mover = grid.add(20, 0, 1);
+        // Adding onto a cell isn't a collision
+        assertEquals(0, grid.detect(new Recorder()));
+
+        grid.move(mover, 1, 1);
+        Recorder recorder = new Recorder();
+        assertEquals(1, grid.detect(recorder));
+        assertEquals("20 hit 10 at 1,1", recorder.only());
+    }
+
+    @Test
+    public void removingAQueuedHandleKeepsTheRestQueued() {
+        CollisionGrid grid = new CollisionGrid(8, 8, 16);
+        // Something to hit on each of three cells
+        grid.add(100, 0, 0);
+        grid.add(101, 1, 0);
+        grid.add(102, 2, 0);
+        int a = grid.add(1, 0, 5);
+        int b = grid.add(2, 1, 5);
+        int c = grid.add(3, 2, 5);
+        grid.move(a, 0, 0);
+        grid.move(b, 1, 0);
+        grid.move(c, 2, 0);
+
+        // The last one in the queue takes a's place
+        grid.remove(a);
+        // Removing twice does nothing
+        grid.remove(a);
+        // Moving c again mustn't queue it a second time
+        grid.move(c, 2, 0);
+
+        Recorder recorder = new Recorder();
+        assertEquals(2, grid.detect(recorder));
+        assertEquals(2, recorder.reports.size());
+        assertTrue(recorder.reports.contains("2 hit 101 at 1,0"));
+        assertTrue(recorder.reports.contains("3 hit 102 at 2,0"));
+
+        // The last one in the queue can go too
+        grid.move(b, 0, 0);
+        grid.move(c, 0, 0);
+        grid.remove(c);
+        recorder = new Recorder();
+        assertEquals(1, grid.detect(recorder));
+        assertEquals("2 hit 100 at 0,0", recorder.only());
+    }
+
+    @Test
+    public void offTheBoardNeverHits() {
+        CollisionGrid grid = new CollisionGrid(4, 4, 8);
+        int a = grid.add(1, -1, 0);
+        int b = grid.add(2, -1, 0);
+        grid.move(a, 4, 2);
+        grid.move(b, 4, 2);
+        int c = grid.add(3, 2, 4);
+        grid.move(c, 0, -1);
+        assertEquals(0, grid.detect(new Recorder()));
+
+        // Coming back on works as usual
+        grid.add(4, 3, 3);
+        grid.move(a, 3, 3);
+        Recorder recorder = new Recorder();
+        assertEquals(1, grid.detect(recorder));
+        assertEquals("1 hit 4 at 3,3", recorder.only());
+    }
+
+    @Test
+    public void clearFreesEveryHandle() {
+        int capacity = 4;
+        CollisionGrid grid = new CollisionGrid(4, 4, capacity);
+        for (int i = 0; i < capacity; i++) {
+            int handle = grid.add(i, i, 0);
+            grid.move(handle, i, 1);
+        }
+        grid.clear();
+        // Nothing queued before the clear is reported
+        assertEquals(0, grid.detect(new Recorder()));
+
+        // Every handle can be had again, each once
+        Set<Integer> handles = new HashSet<>();
+        for (int i = 0; i < capacity; i++) {
+            int handle = grid.add(10 + i, i, 2);
+            assertTrue(handle >= 0 && handle < capacity);
+            assertTrue(handles.add(handle));
+            assertEquals(10 + i, grid.getEntity(handle));
+        }
+        try {
+            grid.add(99, 0, 0);
+            fail();
+        } catch (IllegalStateException expected) {
+            // Full again
+        }
+
+        // The old cells are empty and the new ones collide
+        Recorder recorder = new Recorder();
+        for (int handle : handles) {
+            if (grid.getEntity(handle) == 10) {
+                grid.move(handle, 1, 1);
+            } else if (grid.getEntity(handle) == 11) {
+                grid.move(handle, 2, 2);
+            }
+        }
+        assertEquals(1, grid.detect(recorder));
+        assertEquals("11 hit 12 at 2,2", recorder.only());
+    }
+
+    @Test
+    public void detectCountsEveryReport() {
+        CollisionGrid grid = new CollisionGrid(4, 4, 8);
+        grid.add(1, 2, 2);
+        grid.add(2, 2, 2);
+        grid.add(3, 2, 2);
+        int mover = grid.add(4, 0, 0);
+        grid.move(mover, 2, 2);
+        int other = grid.add(5, 0, 3);
+        grid.move(other, 1, 3);
+
+        Recorder recorder = new Recorder();
+        assertEquals(3, grid.detect(recorder));
+        assertEquals(3, recorder.reports.size());
+        for (int entity = 1; entity <= 3; entity++) {
+            assertTrue(recorder.reports.contains("4 hit " + entity + " at 2,2"));
+        }
+    }
+
+    // Keeps every collision it's told about
+    private static class Recorder implements CollisionHandler {
+        final List<String> reports = new ArrayList<>();
+
+        @Override
+        public void onCollision(int mover, int other, int x, int y) {
+            reports.add(mover + " hit " + other + " at " + x + "," + y);
+        }
+
+        String only() {
+            assertEquals(1, reports.size());
+            return reports.get(0);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HamiltonianCycleTest {
+
+    @Test
+    public void visitsEveryCellOnceWithAnEvenHeight() {
+        assertIsCycle(4, 4);
+        assertIsCycle(5, 6);
+        assertIsCycle(2, 2);
+    }
+
+    @Test
+    public void goesByColumnsWithAnOddHeight() {
+        // The board the game has on a 1080 by 1920 phone
+        assertIsCycle(40, 71);
+        assertIsCycle(6, 5);
+        assertIsCycle(2, 3);
+    }
+
+    @Test
+    public void bothSidesOddCantHaveOne() {
+        assertFalse(HamiltonianCycle.fits(5, 5));
+        assertFalse(HamiltonianCycle.fits(1, 4));
+        assertTrue(HamiltonianCycle.fits(5, 4));
+        assertTrue(HamiltonianCycle.fits(4, 5));
+    }
+
+    // Follow the cycle from the corner, it must stay on the board,
+    // never repeat a cell and be back where it started after every cell
+    private static void assertIsCycle(int width, int height) {
+        HamiltonianCycle cycle = new HamiltonianCycle(width, height);
+        boolean[] seen = new boolean[width * height];
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < width * height; i++) {
+            assertTrue(x >= 0 && x < width && y >= 0 && y < height);
+            assertFalse(seen[y * width + x]);
+            seen[y * width + x] = true;
+            assertEquals(i, cycle.indexOf(x, y));
+            Heading heading = cycle.at(x, y);
+            x += heading.getDx();
+            y += heading.getDy();
+        }
+        assertEquals(0, x);
+        assertEquals(0, y);
+        assertEquals(width * height, cycle.size());
+    }
+}
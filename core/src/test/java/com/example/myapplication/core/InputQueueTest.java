@@ -0,0 +1,108 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InputQueueTest {
+
+    private static final Turn[] TURNS = Turn.values();
+    private static final int STRESS_TURNS = 1_000_000;
+
+    @Test
+    public void turnsComeOutInOrder() {
+        InputQueue queue = new InputQueue(4);
+        assertNull(queue.poll());
+        assertTrue(queue.offer(Turn.LEFT, 10));
+        assertTrue(queue.offer(Turn.RIGHT, 20));
+        assertTrue(queue.offer(Turn.NONE, 30));
+
+        assertEquals(Turn.LEFT, queue.poll());
+        assertEquals(10, queue.getLastTime());
+        assertEquals(Turn.RIGHT, queue.poll());
+        assertEquals(20, queue.getLastTime());
+        assertEquals(Turn.NONE, queue.poll());
+        assertEquals(30, queue.getLastTime());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void aFullQueueDropsNewTurns() {
+        // Rounded up to 8
+        InputQueue queue = new InputQueue(5);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(TURNS[i % TURNS.length], i));
+        }
+        assertFalse(queue.offer(Turn.LEFT, 8));
+
+        // Polling makes room, the dropped turn never shows up
+        assertEquals(TURNS[0], queue.poll());
+        assertTrue(queue.offer(Turn.RIGHT, 9));
+        for (int i = 1; i < 8; i++) {
+            assertEquals(TURNS[i % TURNS.length], queue.poll());
+            assertEquals(i, queue.getLastTime());
+        }
+        assertEquals(Turn.RIGHT, queue.poll());
+        assertEquals(9, queue.getLastTime());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void clearThrowsAwayWhatsWaiting() {
+        InputQueue queue = new InputQueue(4);
+        queue.offer(Turn.LEFT, 1);
+        queue.offer(Turn.RIGHT, 2);
+        queue.clear();
+        assertNull(queue.poll());
+
+        // And leaves the whole queue free
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(Turn.LEFT, i));
+        }
+        assertFalse(queue.offer(Turn.LEFT, 4));
+        assertEquals(Turn.LEFT, queue.poll());
+        assertEquals(0, queue.getLastTime());
+    }
+
+    @Test(timeout = 60_000)
+    public void oneProducerAndOneConsumerLoseNothing() throws InterruptedException {
+        final InputQueue queue = new InputQueue(16);
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < STRESS_TURNS && failure.get() == null; i++) {
+                    // Wait for room rather than drop
+                    while (!queue.offer(TURNS[i % TURNS.length], i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        producer.start();
+
+        // Each turn carries its number as its time, so
+        // a lost or repeated one shows up as a gap
+        int expected = 0;
+        while (expected < STRESS_TURNS && failure.get() == null) {
+            Turn turn = queue.poll();
+            if (turn == null) {
+                Thread.yield();
+                continue;
+            }
+            if (queue.getLastTime() != expected || turn != TURNS[expected % TURNS.length]) {
+                failure.set("expected turn " + expected + ", got " + queue.getLastTime());
+            }
+            expected++;
+        }
+        producer.join();
+        assertNull(failure.get());
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OccupancyGridTest {
+
+    @Test
+    public void offTheBoardIsNeverOccupied() {
+        OccupancyGrid board = new OccupancyGrid(4, 4);
+        board.set(-1, 0);
+        board.set(4, 0);
+        assertFalse(board.isOccupied(-1, 0));
+        assertFalse(board.isOccupied(4, 0));
+        assertFalse(board.contains(0, 4));
+    }
+
+    @Test
+    public void freeCellsFollowTheBits() {
+        // Big enough that the bits run over more than one word
+        OccupancyGrid board = new OccupancyGrid(13, 11);
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            int x = random.nextInt(13);
+            int y = random.nextInt(11);
+            if (random.nextBoolean()) {
+                board.set(x, y);
+                assertTrue(board.isOccupied(x, y));
+            } else {
+                board.clear(x, y);
+                assertFalse(board.isOccupied(x, y));
+            }
+            if (i % 100 == 0) {
+                assertConsistent(board);
+            }
+        }
+        assertConsistent(board);
+
+        board.clearAll();
+        assertConsistent(board);
+        // Everything but the spawn margin is free again
+        assertEquals(12 * 10, board.getFreeCells().size());
+    }
+
+    @Test
+    public void fullBoardHasNowhereToSpawn() {
+        OccupancyGrid board = new OccupancyGrid(3, 3);
+        AppleSpawner apple = new AppleSpawner(board);
+        apple.setSeed(1);
+        assertTrue(apple.spawn());
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                board.set(x, y);
+            }
+        }
+        assertEquals(-1, board.getFreeCells().pick(new Random(1)));
+        assertFalse(apple.spawn());
+        assertFalse(apple.isOnBoard());
+    }
+
+    // The free cells are exactly the empty cells outside the margin
+    // Picks each slot in turn with a Random that returns the index asked for
+    private static void assertConsistent(OccupancyGrid board) {
+        FreeCellIndex free = board.getFreeCells();
+        boolean[] seen = new boolean[board.getWidth() * board.getHeight()];
+        for (int i = 0; i < free.size(); i++) {
+            int cell = free.pick(new FixedRandom(i));
+            int x = cell % board.getWidth();
+            int y = cell / board.getWidth();
+            assertFalse(seen[cell]);
+            seen[cell] = true;
+            assertFalse(board.isOccupied(x, y));
+            assertTrue(x >= 1 && y >= 1);
+        }
+
+        int expected = 0;
+        for (int y = 1; y < board.getHeight(); y++) {
+            for (int x = 1; x < board.getWidth(); x++) {
+                if (!board.isOccupied(x, y)) {
+                    expected++;
+                }
+            }
+        }
+        assertEquals(expected, free.size());
+    }
+
+    private static class FixedRandom extends Random {
+        private static final long serialVersionUID = 1L;
+
+        private final int mIndex;
+
+        FixedRandom(int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return mIndex;
+        }
+    }
+}
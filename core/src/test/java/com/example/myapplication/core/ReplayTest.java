@@ -0,0 +1,176 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReplayTest {
+
+    private static final long SEED = 7;
+    private static final int SIZE = 20;
+    private static final int REACH = 1;
+    private static final int MAX_TICKS = 20_000;
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        byte[] bytes = record();
+        Replay replay = read(bytes);
+        assertEquals(SEED, replay.getSeed());
+        assertEquals(SIZE, replay.getWidth());
+        assertEquals(SIZE, replay.getHeight());
+        assertEquals(REACH, replay.getEatReach());
+        assertTrue(replay.hasEnd());
+
+        int turns = 0;
+        int checkpoints = 0;
+        for (int i = 0; i < replay.getRecordCount(); i++) {
+            if (replay.getTurn(i) != null) {
+                turns++;
+            } else if (replay.isCheckpoint(i)) {
+                checkpoints++;
+                assertEquals(0, replay.getTick(i) % ReplayWriter.CHECKPOINT_TICKS);
+            }
+        }
+        assertTrue(turns > 0);
+        assertTrue(checkpoints > 0);
+    }
+
+    @Test
+    public void playsBackToTheSameGame() throws IOException {
+        assertEquals(-1, play(read(record())));
+    }
+
+    @Test
+    public void aCutOffRecordingHasNoEnd() throws IOException {
+        byte[] bytes = record();
+        Replay whole = read(bytes);
+        Replay cut = read(Arrays.copyOf(bytes, bytes.length - 3));
+        assertFalse(cut.hasEnd());
+        assertEquals(whole.getRecordCount() - 1, cut.getRecordCount());
+        // What's left still plays back
+        assertEquals(-1, play(cut));
+    }
+
+    @Test
+    public void aChangedHashIsCaught() throws IOException {
+        byte[] bytes = record();
+        Replay replay = read(bytes);
+        int checkpoint = 0;
+        while (!replay.isCheckpoint(checkpoint)) {
+            checkpoint++;
+        }
+
+        // Flip a bit in the first checkpoint's hash, the first 8 byte run
+        // that matches it
+        long hash = replay.getHash(checkpoint);
+        int at = find(bytes, hash);
+        bytes[at + 7] ^= 1;
+        assertEquals(replay.getTick(checkpoint), play(read(bytes)));
+    }
+
+    @Test
+    public void rejectsWhatIsNotAReplay() {
+        try {
+            read(new byte[] {'N', 'O', 'P', 'E', 1});
+            fail();
+        } catch (IOException e) {
+            assertEquals("Not a replay", e.getMessage());
+        }
+    }
+
+    @Test
+    public void turnsAreOnlyRecordedWhenTheyTurn() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReplayWriter writer = new ReplayWriter(Channels.newChannel(out), 64);
+        writer.begin(SEED, SIZE, SIZE, REACH);
+        writer.turn(1, Turn.NONE);
+        writer.turn(300, Turn.LEFT);
+        writer.turn(301, Turn.RIGHT);
+        writer.close();
+
+        Replay replay = read(out.toByteArray());
+        assertEquals(2, replay.getRecordCount());
+        assertEquals(300, replay.getTick(0));
+        assertEquals(Turn.LEFT, replay.getTurn(0));
+        assertEquals(301, replay.getTick(1));
+        assertEquals(Turn.RIGHT, replay.getTurn(1));
+    }
+
+    // Let the autopilot play a game and record it like the game does,
+    // with a small buffer so it goes out to the channel many times
+    private static byte[] record() throws IOException {
+        SnakeSimulation sim = new SnakeSimulation(SIZE, SIZE, REACH);
+        sim.setSeed(SEED);
+        sim.newGame();
+        Autopilot autopilot = new Autopilot(sim);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReplayWriter writer = new ReplayWriter(Channels.newChannel(out), 64);
+        writer.begin(SEED, SIZE, SIZE, REACH);
+        while (!sim.isOver() && sim.getTicks() < MAX_TICKS) {
+            Turn turn = autopilot.plan();
+            writer.turn(sim.getTicks() + 1, turn);
+            sim.tick(turn);
+            if (sim.getTicks() % ReplayWriter.CHECKPOINT_TICKS == 0) {
+                writer.checkpoint(sim.getTicks(), sim.getStateHash());
+            }
+        }
+        writer.end(sim.getTicks(), sim.getStateHash());
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static Replay read(byte[] bytes) throws IOException {
+        return Replay.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    // Play the recorded turns back and return the tick
+    // the first hash didn't match on, or -1 if they all did
+    private static long play(Replay replay) {
+        SnakeSimulation sim = new SnakeSimulation(replay.getWidth(), replay.getHeight(),
+                replay.getEatReach());
+        sim.setSeed(replay.getSeed());
+        sim.newGame();
+
+        int record = 0;
+        while (record < replay.getRecordCount()) {
+            long tick = sim.getTicks() + 1;
+            Turn turn = Turn.NONE;
+            if (replay.getTick(record) == tick && replay.getTurn(record) != null) {
+                turn = replay.getTurn(record);
+                record++;
+            }
+            sim.tick(turn);
+            while (record < replay.getRecordCount() && replay.getTick(record) == tick) {
+                if (replay.getHash(record) != sim.getStateHash()
+                        || (replay.isEnd(record) && !sim.isOver())) {
+                    return tick;
+                }
+                record++;
+            }
+        }
+        return -1;
+    }
+
+    private static int find(byte[] bytes, long value) {
+        for (int at = 0; at + 8 <= bytes.length; at++) {
+            long read = 0;
+            for (int i = 0; i < 8; i++) {
+                read = (read << 8) | (bytes[at + i] & 0xFF);
+            }
+            if (read == value) {
+                return at;
+            }
+        }
+        throw new AssertionError("Hash not found");
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SegmentRingTest {
+
+    @Test
+    public void packKeepsNegativeCells() {
+        int cell = SegmentRing.pack(-1, -1);
+        assertEquals(-1, SegmentRing.unpackX(cell));
+        assertEquals(-1, SegmentRing.unpackY(cell));
+        cell = SegmentRing.pack(999, 0);
+        assertEquals(999, SegmentRing.unpackX(cell));
+        assertEquals(0, SegmentRing.unpackY(cell));
+    }
+
+    @Test
+    public void wrapsAroundTheEndOfTheArray() {
+        SegmentRing ring = new SegmentRing(3);
+        ring.addHead(1);
+        ring.addHead(2);
+        ring.addHead(3);
+        // Keep moving so the head goes round the array more than once
+        for (int cell = 4; cell < 12; cell++) {
+            assertEquals(cell - 3, ring.removeTail());
+            ring.addHead(cell);
+            assertEquals(3, ring.size());
+            assertEquals(cell, ring.get(0));
+            assertEquals(cell - 1, ring.get(1));
+            assertEquals(cell - 2, ring.get(2));
+        }
+    }
+
+    @Test
+    public void growsPastItsCapacityInOrder() {
+        SegmentRing ring = new SegmentRing(2);
+        ring.addHead(1);
+        ring.addHead(2);
+        ring.removeTail();
+        ring.addHead(3);
+        // The head is part way round when it grows
+        for (int cell = 4; cell <= 10; cell++) {
+            ring.addHead(cell);
+        }
+        assertEquals(9, ring.size());
+        for (int i = 0; i < ring.size(); i++) {
+            assertEquals(10 - i, ring.get(i));
+        }
+    }
+}
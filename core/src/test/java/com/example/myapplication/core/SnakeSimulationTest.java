@@ -0,0 +1,280 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SnakeSimulationTest {
+
+    // Where things are in what SnakeSimulation.save() writes
+    private static final int REACH_AT = 13;
+    private static final int APPLE_AT = 37;
+    private static final int HEADING_AT = 45;
+    private static final int SEGMENTS_AT = 59;
+
+    @Test
+    public void eatingGrowsAndScores() {
+        // A reach as big as the board means the first move eats
+        SnakeSimulation sim = new SnakeSimulation(10, 10, 10);
+        sim.setSeed(1);
+        sim.newGame();
+
+        int events = sim.tick(Turn.NONE);
+        assertTrue((events & SnakeSimulation.EVENT_ATE) != 0);
+        assertEquals(1, sim.getScore());
+        assertEquals(1, sim.getSnake().length());
+
+        // The tail stays put on the next move
+        sim.tick(Turn.NONE);
+        assertEquals(2, sim.getSnake().length());
+        assertTrue(sim.getApple().isOnBoard());
+    }
+
+    @Test
+    public void runningOffTheBoardIsAWallDeath() {
+        SnakeSimulation sim = new SnakeSimulation(10, 10, 0);
+        sim.setSeed(1);
+        sim.newGame();
+
+        // Starts in the middle heading right
+        int events = 0;
+        while ((events & SnakeSimulation.EVENT_DIED) == 0) {
+            events = sim.tick(Turn.NONE);
+        }
+        assertEquals(5, sim.getTicks());
+        assertEquals(10, sim.getSnake().getHeadX());
+        assertEquals(DeathCause.WALL, sim.getSnake().getDeathCause());
+        assertTrue(sim.isOver());
+    }
+
+    @Test
+    public void runningIntoTheBodyIsABodyDeath() {
+        SnakeBody snake = snakeOfLength(5);
+        turnThreeTimes(snake);
+        assertTrue(snake.isDead());
+        assertEquals(DeathCause.BODY, snake.getDeathCause());
+    }
+
+    @Test
+    public void followingTheTailIsAllowed() {
+        // The tail leaves the cell on the same move the head arrives
+        SnakeBody snake = snakeOfLength(4);
+        turnThreeTimes(snake);
+        assertFalse(snake.isDead());
+        assertEquals(DeathCause.NONE, snake.getDeathCause());
+        assertEquals(4, snake.length());
+    }
+
+    @Test
+    public void fillingTheBoardEndsTheGame() {
+        // 3x3 has four cells apples can spawn on, the snake starts on one
+        SnakeSimulation sim = new SnakeSimulation(3, 3, 3);
+        sim.setSeed(1);
+        sim.newGame();
+        sim.getBoard().set(1, 2);
+        sim.getBoard().set(2, 2);
+        // Keep the tail where it is so the head takes the last free cell
+        sim.getSnake().grow();
+
+        int events = sim.tick(Turn.NONE);
+        assertTrue((events & SnakeSimulation.EVENT_ATE) != 0);
+        assertTrue((events & SnakeSimulation.EVENT_BOARD_FULL) != 0);
+        assertEquals(0, sim.getBoard().getFreeCells().size());
+        assertFalse(sim.getApple().isOnBoard());
+        assertTrue(sim.isOver());
+    }
+
+    @Test
+    public void sameSeedPlaysTheSame() {
+        SnakeSimulation a = new SnakeSimulation(20, 20, 1);
+        SnakeSimulation b = new SnakeSimulation(20, 20, 1);
+        a.setSeed(42);
+        b.setSeed(42);
+        a.newGame();
+        b.newGame();
+        Turn[] turns = {Turn.NONE, Turn.LEFT, Turn.NONE, Turn.RIGHT};
+        for (int i = 0; i < 200 && !a.isOver(); i++) {
+            a.tick(turns[i % turns.length]);
+            b.tick(turns[i % turns.length]);
+            assertEquals(a.getStateHash(), b.getStateHash());
+        }
+    }
+
+    @Test
+    public void restoredGamePlaysOnTheSame() {
+        SnakeSimulation a = new SnakeSimulation(20, 20, 1);
+        a.setSeed(42);
+        a.newGame();
+        Autopilot autopilot = new Autopilot(a);
+        for (int i = 0; i < 300; i++) {
+            a.tick(autopilot.plan());
+        }
+        assertFalse(a.isOver());
+
+        SnakeSimulation b = new SnakeSimulation(20, 20, 1);
+        assertTrue(b.restore(save(a)));
+        assertEquals(a.getStateHash(), b.getStateHash());
+        assertEquals(a.getSnake().getGrowth(), b.getSnake().getGrowth());
+        assertEquals(a.getBoard().getFreeCells().size(), b.getBoard().getFreeCells().size());
+
+        // Apples come from the saved random state, so they land in the same places
+        while (!a.isOver()) {
+            Turn turn = autopilot.plan();
+            assertEquals(a.tick(turn), b.tick(turn));
+            assertEquals(a.getStateHash(), b.getStateHash());
+        }
+        assertTrue(b.isOver());
+    }
+
+    @Test
+    public void corruptSavesAreRejected() {
+        SnakeSimulation sim = new SnakeSimulation(20, 20, 1);
+        sim.setSeed(42);
+        sim.newGame();
+        for (int i = 0; i < 3; i++) {
+            sim.tick(Turn.NONE);
+        }
+        ByteBuffer saved = save(sim);
+
+        // Magic, version, then heading and a free cell
+        assertFalse(restoreChanged(saved, 0, (byte) 'X'));
+        assertFalse(restoreChanged(saved, 4, (byte) 99));
+        assertFalse(restoreChanged(saved, HEADING_AT, (byte) 99));
+        ByteBuffer badCell = copy(saved);
+        badCell.order(saved.order()).putInt(badCell.limit() - 4, -1);
+        SnakeSimulation fresh = new SnakeSimulation(20, 20, 1);
+        assertFalse(fresh.restore(badCell));
+        // It got as far as the board, so that's a new game now
+        assertEquals(0, fresh.getTicks());
+        assertEquals(1, fresh.getSnake().length());
+
+        // Cut short, or from another board or eat reach
+        ByteBuffer cut = copy(saved);
+        cut.limit(cut.limit() - 1);
+        assertFalse(new SnakeSimulation(20, 20, 1).restore(cut));
+        assertFalse(new SnakeSimulation(20, 21, 1).restore(copy(saved)));
+        assertFalse(new SnakeSimulation(20, 20, 2).restore(copy(saved)));
+        assertFalse(new SnakeSimulation(20, 20, 1).restore(ByteBuffer.allocate(0)));
+
+        // The untouched save still works
+        assertTrue(new SnakeSimulation(20, 20, 1).restore(copy(saved)));
+    }
+
+    @Test
+    public void savesThatDontHangTogetherAreRejected() {
+        // A straight snake three long heading right
+        SnakeSimulation sim = new SnakeSimulation(20, 20, 0);
+        sim.setSeed(42);
+        sim.newGame();
+        sim.getSnake().grow();
+        sim.getSnake().grow();
+        for (int i = 0; i < 3; i++) {
+            sim.tick(Turn.NONE);
+        }
+        SegmentRing segments = sim.getSnake().getSegments();
+        assertEquals(3, segments.size());
+        int headX = segments.getX(0);
+        int headY = segments.getY(0);
+        ByteBuffer saved = save(sim);
+        int length = segments.size();
+        int tailAt = SEGMENTS_AT + 4 * (length - 1);
+        int freeAt = SEGMENTS_AT + 4 * length + 8 * sim.getBoard().getWordCount();
+        int headCell = headY * 20 + headX;
+
+        // Free cells said twice, in the margin apples keep out of,
+        // or with the snake on them
+        assertFalse(restoreChangedInt(saved, freeAt + 4, saved.getInt(freeAt)));
+        assertFalse(restoreChangedInt(saved, freeAt, 0));
+        assertFalse(restoreChangedInt(saved, freeAt, headCell));
+
+        // A tail that isn't next to the segment before it, that isn't
+        // on the board's bits, or that's the head again
+        assertFalse(restoreChangedInt(saved, tailAt, SegmentRing.pack(headX - 2, headY + 1)));
+        assertFalse(restoreChangedInt(saved, tailAt, SegmentRing.pack(headX - 1, headY - 1)));
+        assertFalse(restoreChangedInt(saved, tailAt, segments.get(0)));
+
+        // A live head off the board
+        SnakeSimulation single = new SnakeSimulation(20, 20, 0);
+        single.setSeed(42);
+        single.newGame();
+        assertFalse(restoreChangedInt(save(single), SEGMENTS_AT, SegmentRing.pack(20, 10)));
+
+        // The apple on the body, in the margin, or gone with free cells left
+        assertFalse(restoreChangedApple(saved, headX - 1, headY));
+        assertFalse(restoreChangedApple(saved, 0, 0));
+        assertFalse(restoreChangedApple(saved, -10, -10));
+
+        // A dead snake's head may be off the board
+        SnakeSimulation wall = new SnakeSimulation(10, 10, 0);
+        wall.setSeed(1);
+        wall.newGame();
+        while (!wall.isOver()) {
+            wall.tick(Turn.NONE);
+        }
+        assertEquals(DeathCause.WALL, wall.getSnake().getDeathCause());
+        SnakeSimulation restored = new SnakeSimulation(10, 10, 0);
+        assertTrue(restored.restore(save(wall)));
+        assertEquals(wall.getStateHash(), restored.getStateHash());
+    }
+
+    private static ByteBuffer save(SnakeSimulation sim) {
+        ByteBuffer out = ByteBuffer.allocate(sim.getSaveSize());
+        sim.save(out);
+        assertFalse(out.hasRemaining());
+        out.flip();
+        return out;
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer) {
+        ByteBuffer copy = ByteBuffer.allocate(buffer.limit());
+        copy.put(buffer.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    // Restore a save with one int changed into a fresh simulation
+    private static boolean restoreChangedInt(ByteBuffer saved, int index, int value) {
+        ByteBuffer changed = copy(saved);
+        changed.order(saved.order()).putInt(index, value);
+        return new SnakeSimulation(20, 20, saved.getInt(REACH_AT)).restore(changed);
+    }
+
+    private static boolean restoreChangedApple(ByteBuffer saved, int x, int y) {
+        ByteBuffer changed = copy(saved);
+        changed.order(saved.order()).putInt(APPLE_AT, x).putInt(APPLE_AT + 4, y);
+        return new SnakeSimulation(20, 20, saved.getInt(REACH_AT)).restore(changed);
+    }
+
+    // Restore a save with one byte changed into a fresh simulation
+    private static boolean restoreChanged(ByteBuffer saved, int index, byte value) {
+        ByteBuffer changed = copy(saved);
+        changed.put(index, value);
+        return new SnakeSimulation(20, 20, 1).restore(changed);
+    }
+
+    // A straight snake heading right, its head length - 1 cells right of the middle
+    private static SnakeBody snakeOfLength(int length) {
+        SnakeBody snake = new SnakeBody(new OccupancyGrid(20, 20));
+        snake.reset();
+        for (int i = 1; i < length; i++) {
+            snake.grow();
+        }
+        for (int i = 1; i < length; i++) {
+            snake.move();
+        }
+        assertEquals(length, snake.length());
+        return snake;
+    }
+
+    // Down, left then up, back into the row the body lies along
+    private static void turnThreeTimes(SnakeBody snake) {
+        for (int i = 0; i < 3; i++) {
+            snake.turn(Turn.RIGHT);
+            snake.move();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SnapshotExchangeTest {
+
+    private static final int STRESS_SNAPSHOTS = 200_000;
+
+    @Test
+    public void acquireReturnsTheNewestPublished() {
+        SnakeSimulation sim = newSimulation();
+        SnapshotExchange exchange = new SnapshotExchange();
+
+        publish(exchange, sim, 1);
+        assertEquals(1, exchange.acquire().getTickNanos());
+
+        // Ones the consumer missed are skipped
+        publish(exchange, sim, 2);
+        publish(exchange, sim, 3);
+        assertEquals(3, exchange.acquire().getTickNanos());
+    }
+
+    @Test
+    public void aSnapshotIsOnlyHandedOutOnce() {
+        SnakeSimulation sim = newSimulation();
+        SnapshotExchange exchange = new SnapshotExchange();
+        GameSnapshot empty = exchange.acquire();
+
+        publish(exchange, sim, 1);
+        GameSnapshot first = exchange.acquire();
+        assertNotSame(empty, first);
+
+        // Nothing new, so the same one again rather than
+        // swapping back to the one it replaced
+        assertSame(first, exchange.acquire());
+        assertSame(first, exchange.acquire());
+        assertEquals(1, first.getTickNanos());
+
+        // The producer never gets the one the consumer holds
+        for (int i = 2; i < 10; i++) {
+            assertNotSame(first, exchange.getBack());
+            publish(exchange, sim, i);
+        }
+        GameSnapshot newest = exchange.acquire();
+        assertEquals(9, newest.getTickNanos());
+        assertNotSame(newest, exchange.getBack());
+    }
+
+    @Test(timeout = 60_000)
+    public void theConsumerNeverSeesOneBeingFilled() throws InterruptedException {
+        final SnakeSimulation sim = newSimulation();
+        final SnapshotExchange exchange = new SnapshotExchange();
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 1; i <= STRESS_SNAPSHOTS; i++) {
+                    publish(exchange, sim, i);
+                }
+            }
+        });
+        producer.start();
+
+        // The phase is written before the sequence number, so a torn
+        // snapshot has them disagree, and one the producer writes into
+        // while it's held changes between two reads
+        long last = 0;
+        while (last < STRESS_SNAPSHOTS && failure.get() == null) {
+            GameSnapshot snapshot = exchange.acquire();
+            long sequence = snapshot.getTickNanos();
+            if (sequence < last) {
+                failure.set("went back from " + last + " to " + sequence);
+            } else if (sequence > 0 && snapshot.getPhase() != phaseFor(sequence)) {
+                failure.set("torn snapshot " + sequence);
+            }
+            for (int spin = 0; spin < 100; spin++) {
+                Thread.yield();
+                if (snapshot.getTickNanos() != sequence) {
+                    failure.set("snapshot " + sequence + " changed while held");
+                    break;
+                }
+            }
+            last = sequence;
+        }
+        producer.join();
+        assertNull(failure.get());
+        assertEquals(STRESS_SNAPSHOTS, exchange.acquire().getTickNanos());
+    }
+
+    private static SnakeSimulation newSimulation() {
+        SnakeSimulation sim = new SnakeSimulation(8, 8, 0);
+        sim.setSeed(1);
+        sim.newGame();
+        return sim;
+    }
+
+    // Fill in the back snapshot tagged with sequence and hand it over
+    private static void publish(SnapshotExchange exchange, SnakeSimulation sim, long sequence) {
+        exchange.getBack().capture(sim, phaseFor(sequence), sequence);
+        exchange.publish();
+    }
+
+    private static int phaseFor(long sequence) {
+        return (int) (sequence % 4);
+    }
+}
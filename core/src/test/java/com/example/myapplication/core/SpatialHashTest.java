@@ -0,0 +1,63 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpatialHashTest {
+
+    private static final int WIDTH = 50;
+    private static final int HEIGHT = 37;
+    private static final int CAPACITY = 40;
+
+    @Test
+    public void emptyHasNothingNearest() {
+        SpatialHash hash = new SpatialHash(WIDTH, HEIGHT, 8, CAPACITY);
+        assertEquals(-1, hash.findNearest(3, 3));
+        hash.insert(5, 1, 1);
+        hash.remove(5);
+        assertEquals(-1, hash.findNearest(3, 3));
+    }
+
+    @Test
+    public void nearestMatchesLookingAtEveryId() {
+        // Buckets that don't divide the board evenly
+        SpatialHash hash = new SpatialHash(WIDTH, HEIGHT, 8, CAPACITY);
+        int[] xs = new int[CAPACITY];
+        int[] ys = new int[CAPACITY];
+        boolean[] in = new boolean[CAPACITY];
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(CAPACITY);
+            if (random.nextInt(3) == 0) {
+                hash.remove(id);
+                in[id] = false;
+            } else {
+                // Moving one that's already in is allowed
+                xs[id] = random.nextInt(WIDTH);
+                ys[id] = random.nextInt(HEIGHT);
+                hash.insert(id, xs[id], ys[id]);
+                in[id] = true;
+            }
+            int x = random.nextInt(WIDTH);
+            int y = random.nextInt(HEIGHT);
+            assertEquals("step " + i, nearest(xs, ys, in, x, y), hash.findNearest(x, y));
+        }
+    }
+
+    // The lowest id of the closest ones, or -1
+    private static int nearest(int[] xs, int[] ys, boolean[] in, int x, int y) {
+        int nearest = -1;
+        int nearestDistance = Integer.MAX_VALUE;
+        for (int id = 0; id < xs.length; id++) {
+            int distance = Math.abs(xs[id] - x) + Math.abs(ys[id] - y);
+            if (in[id] && distance < nearestDistance) {
+                nearest = id;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.myapplication.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TraceRecorderTest {
+
+    @Test
+    public void sameNameSameId() {
+        TraceRecorder trace = new TraceRecorder(16);
+        int tick = trace.addName("tick");
+        int frame = trace.addName("frame");
+        assertEquals(tick, trace.addName("tick"));
+        assertTrue(tick != frame);
+    }
+
+    @Test
+    public void writesThreadNamesAndCompleteEvents() throws IOException {
+        TraceRecorder trace = new TraceRecorder(16);
+        int tick = trace.addName("tick");
+        int quoted = trace.addName("say \"hi\"");
+        trace.nameCurrentThread();
+        trace.end(tick, trace.begin(tick));
+        trace.end(quoted, trace.begin(quoted));
+        assertEquals(2, trace.getEventCount());
+
+        String json = write(trace);
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(json.trim().endsWith("]}"));
+        assertTrue(json.contains("\"name\":\"thread_name\",\"ph\":\"M\""));
+        assertTrue(json.contains("\"name\":\"" + Thread.currentThread().getName() + "\""));
+        assertTrue(json.contains("{\"name\":\"tick\",\"ph\":\"X\",\"pid\":1,\"tid\":"
+                + Thread.currentThread().getId() + ",\"ts\":0.000,"));
+        assertTrue(json.contains("\"name\":\"say \\\"hi\\\"\""));
+        assertEquals(2, count(json, "\"ph\":\"X\""));
+    }
+
+    @Test
+    public void keepsTheNewestWhenFull() throws IOException {
+        TraceRecorder trace = new TraceRecorder(4);
+        int[] ids = new int[6];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = trace.addName("section" + i);
+        }
+        for (int id : ids) {
+            trace.end(id, trace.begin(id));
+        }
+        assertEquals(4, trace.getEventCount());
+
+        String json = write(trace);
+        assertFalse(json.contains("\"section0\""));
+        assertFalse(json.contains("\"section1\""));
+        // Oldest first
+        assertTrue(json.indexOf("\"section2\"") < json.indexOf("\"section5\""));
+
+        trace.clear();
+        assertEquals(0, trace.getEventCount());
+        assertEquals(0, count(write(trace), "\"ph\":\"X\""));
+    }
+
+    @Test
+    public void handsSectionsToThePlatformInOrder() {
+        final StringBuilder calls = new StringBuilder();
+        TraceRecorder trace = new TraceRecorder(4);
+        int tick = trace.addName("tick");
+        trace.setSections(new TraceSections() {
+            @Override
+            public void beginSection(String name) {
+                calls.append("begin ").append(name).append(';');
+            }
+
+            @Override
+            public void endSection() {
+                calls.append("end;");
+            }
+        });
+        trace.end(tick, trace.begin(tick));
+        assertEquals("begin tick;end;", calls.toString());
+    }
+
+    @Test
+    public void simulationTimesEachPartOfATick() throws IOException {
+        TraceRecorder trace = new TraceRecorder(1024);
+        SnakeSimulation sim = new SnakeSimulation(20, 20, 20);
+        sim.setTraceRecorder(trace);
+        sim.setSeed(1);
+        sim.newGame();
+        // Within reach of the apple, so it spawns as it eats
+        sim.tick(Turn.NONE);
+        sim.tick(Turn.NONE);
+        assertTrue(sim.getScore() > 0);
+
+        String json = write(trace);
+        assertEquals(2, count(json, "\"name\":\"move\""));
+        assertEquals(2, count(json, "\"name\":\"collide\""));
+        assertEquals(sim.getScore(), count(json, "\"name\":\"spawn\""));
+    }
+
+    private static String write(TraceRecorder trace) throws IOException {
+        StringWriter out = new StringWriter();
+        trace.writeJson(out);
+        return out.toString();
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int at = text.indexOf(part); at >= 0; at = text.indexOf(part, at + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
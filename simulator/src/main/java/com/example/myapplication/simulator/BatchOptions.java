@@ -0,0 +1,122 @@
+package com.example.myapplication.simulator;
+
+// The command line settings for a batch
+class BatchOptions {
+
+    static final String PLAYER_AUTOPILOT = "autopilot";
+    static final String PLAYER_RANDOM = "random";
+
+    static final String FORMAT_CSV = "csv";
+    static final String FORMAT_NDJSON = "ndjson";
+
+    // The defaults are about what a 1080 by 1920 phone plays
+    long games = 1000;
+    int width = 40;
+    int height = 71;
+    int eatReach = 2;
+    long seed = 1;
+    int threads = Runtime.getRuntime().availableProcessors();
+    String player = PLAYER_AUTOPILOT;
+    String format = FORMAT_CSV;
+    // "-" means standard output
+    String out = "results.csv";
+    boolean outSet;
+    long maxTicks = 1000000;
+    // Where to write a Chrome trace of the last games, null for none
+    String trace;
+    // A folder to record a replay of every game into, null for none
+    String replays;
+
+    static final String USAGE = "Usage: BatchSimulator [options]\n"
+            + "  --games N        games to play (1000)\n"
+            + "  --board WxH      board size in blocks (40x71)\n"
+            + "  --eat-reach R    blocks from the apple that still eat it (2)\n"
+            + "  --seed S         seed of the first game, game i uses S + i (1)\n"
+            + "  --threads T      worker threads (one per core)\n"
+            + "  --player P       autopilot or random (autopilot)\n"
+            + "  --format F       csv or ndjson (csv)\n"
+            + "  --out FILE       where the results go, - for standard output\n"
+            + "                   (results.csv or results.ndjson)\n"
+            + "  --max-ticks M    end a game that runs this long (1000000)\n"
+            + "  --trace FILE     write a Chrome trace of the last ticks played\n"
+            + "  --replays DIR    record every game into DIR/game-<game>.snkr";
+
+    // Throws IllegalArgumentException with a message for the user
+    static BatchOptions parse(String[] args) {
+        BatchOptions options = new BatchOptions();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing a value after " + name);
+            }
+            String value = args[++i];
+            switch (name) {
+                case "--games":
+                    options.games = parseLong(name, value, 1);
+                    break;
+                case "--board":
+                    int x = value.indexOf('x');
+                    if (x < 0) {
+                        throw new IllegalArgumentException("--board should look like 40x71");
+                    }
+                    options.width = (int) parseLong(name, value.substring(0, x), 2);
+                    options.height = (int) parseLong(name, value.substring(x + 1), 2);
+                    break;
+                case "--eat-reach":
+                    options.eatReach = (int) parseLong(name, value, 0);
+                    break;
+                case "--seed":
+                    options.seed = parseLong(name, value, Long.MIN_VALUE);
+                    break;
+                case "--threads":
+                    options.threads = (int) parseLong(name, value, 1);
+                    break;
+                case "--player":
+                    if (!value.equals(PLAYER_AUTOPILOT) && !value.equals(PLAYER_RANDOM)) {
+                        throw new IllegalArgumentException("--player should be autopilot or random");
+                    }
+                    options.player = value;
+                    break;
+                case "--format":
+                    if (!value.equals(FORMAT_CSV) && !value.equals(FORMAT_NDJSON)) {
+                        throw new IllegalArgumentException("--format should be csv or ndjson");
+                    }
+                    options.format = value;
+                    break;
+                case "--out":
+                    options.out = value;
+                    options.outSet = true;
+                    break;
+                case "--max-ticks":
+                    options.maxTicks = parseLong(name, value, 1);
+                    break;
+                case "--trace":
+                    options.trace = value;
+                    break;
+                case "--replays":
+                    options.replays = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        // Match the file name to the format unless one was given
+        if (!options.outSet && options.format.equals(FORMAT_NDJSON)) {
+            options.out = "results.ndjson";
+        }
+        return options;
+    }
+
+    private static long parseLong(String name, String value, long min) {
+        long result;
+        try {
+            result = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " should be a number, not " + value);
+        }
+        if (result < min) {
+            throw new IllegalArgumentException(name + " should be at least " + min);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.myapplication.simulator;
+
+import com.example.myapplication.core.TraceRecorder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Plays lots of seeded games with no screen, spread over every core,
+// and streams one result line per game to a file.
+// Good for tuning the difficulty and the autopilot
+// on far more games than anyone could play by hand
+public class BatchSimulator {
+
+    // How often progress is printed while the games run
+    private static final long PROGRESS_MILLIS = 5000;
+
+    // Big enough that the workers rarely wait on the disk
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    // How many of the last sections a trace keeps
+    private static final int TRACE_CAPACITY = 1 << 18;
+
+    public static void main(String[] args) throws Exception {
+        BatchOptions options;
+        try {
+            options = BatchOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(BatchOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        // Results go to standard output with "-",
+        // so the summary always goes to standard error
+        OutputStream stream = options.out.equals("-") ? System.out : new FileOutputStream(options.out);
+        ResultWriter writer = new ResultWriter(new BufferedWriter(
+                new OutputStreamWriter(stream, StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE),
+                options.format.equals(BatchOptions.FORMAT_NDJSON));
+
+        if (options.replays != null) {
+            File dir = new File(options.replays);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                System.err.println("Couldn't make " + dir);
+                System.exit(1);
+                return;
+            }
+        }
+
+        System.err.println("Playing " + options.games + " games on a " + options.width + "x"
+                + options.height + " board with " + options.threads + " threads");
+
+        // The workers each take the next game number until they run out,
+        // so a long game on one thread doesn't hold up the others
+        TraceRecorder trace = options.trace != null ? new TraceRecorder(TRACE_CAPACITY) : null;
+        AtomicLong nextGame = new AtomicLong();
+        GameRunner[] runners = new GameRunner[options.threads];
+        Thread[] threads = new Thread[options.threads];
+        long start = System.nanoTime();
+        for (int i = 0; i < threads.length; i++) {
+            runners[i] = new GameRunner(options, nextGame, writer, trace);
+            threads[i] = new Thread(runners[i], "Simulator-" + i);
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(PROGRESS_MILLIS);
+                if (thread.isAlive()) {
+                    long started = Math.min(nextGame.get(), options.games);
+                    System.err.println("  " + started + " of " + options.games + " games started");
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        writer.close();
+
+        // Add up what each worker counted
+        long games = 0;
+        long ticks = 0;
+        long score = 0;
+        long walls = 0;
+        long bodies = 0;
+        long boardsFull = 0;
+        long tickLimits = 0;
+        long stuck = 0;
+        IOException error = null;
+        for (GameRunner runner : runners) {
+            games += runner.getGames();
+            ticks += runner.getTicks();
+            score += runner.getScore();
+            walls += runner.getWalls();
+            bodies += runner.getBodies();
+            boardsFull += runner.getBoardsFull();
+            tickLimits += runner.getTickLimits();
+            stuck += runner.getStuck();
+            if (runner.getError() != null) {
+                error = runner.getError();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+
+        double seconds = elapsed / 1e9;
+        System.err.println(String.format("%d games, %d ticks in %.2f s", games, ticks, seconds));
+        System.err.println(String.format("%.2f games/s, %.0f ticks/s", games / seconds, ticks / seconds));
+        System.err.println(String.format("Mean score %.2f", (double) score / games));
+        System.err.println("Ended by " + GameRunner.CAUSE_WALL + ": " + walls
+                + ", " + GameRunner.CAUSE_BODY + ": " + bodies
+                + ", " + GameRunner.CAUSE_BOARD_FULL + ": " + boardsFull
+                + ", " + GameRunner.CAUSE_TICK_LIMIT + ": " + tickLimits
+                + ", " + GameRunner.CAUSE_STUCK + ": " + stuck);
+        if (!options.out.equals("-")) {
+            System.err.println("Results written to " + options.out);
+        }
+
+        if (trace != null) {
+            Writer traceOut = new BufferedWriter(new FileWriter(options.trace), OUTPUT_BUFFER_SIZE);
+            try {
+                trace.writeJson(traceOut);
+            } finally {
+                traceOut.close();
+            }
+            System.err.println(trace.getEventCount() + " trace events written to " + options.trace);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.myapplication.simulator;
+
+import com.example.myapplication.core.Autopilot;
+import com.example.myapplication.core.ReplayWriter;
+import com.example.myapplication.core.SnakeSimulation;
+import com.example.myapplication.core.TraceRecorder;
+import com.example.myapplication.core.Turn;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One worker thread's share of the batch.
+// Keeps taking the next game number until they're all gone,
+// reusing one simulation for every game it plays
+class GameRunner implements Runnable {
+
+    // How a game ended, as written to the results
+    static final String CAUSE_WALL = "wall";
+    static final String CAUSE_BODY = "body";
+    static final String CAUSE_BOARD_FULL = "board_full";
+    static final String CAUSE_TICK_LIMIT = "tick_limit";
+    // The autopilot gave up, going round without ever eating
+    static final String CAUSE_STUCK = "stuck";
+
+    // The random player turns on about one tick in this many
+    private static final int RANDOM_TURN_ODDS = 8;
+
+    private static final int REPLAY_BUFFER_SIZE = 8192;
+
+    private final BatchOptions mOptions;
+    private final AtomicLong mNextGame;
+    private final ResultWriter mWriter;
+    // Shared by every worker, null unless tracing
+    private final TraceRecorder mTrace;
+    private int mTraceGame;
+
+    private final SnakeSimulation mSim;
+    // Null unless the autopilot is playing
+    private final Autopilot mAutopilot;
+    private final Random mRandom = new Random();
+
+    // Reused for every result line
+    private final StringBuilder mLine = new StringBuilder();
+
+    // Totals for the summary, read once the thread has finished
+    private long mGames;
+    private long mTicks;
+    private long mScore;
+    private long mWalls;
+    private long mBodies;
+    private long mBoardsFull;
+    private long mTickLimits;
+    private long mStuck;
+    private IOException mError;
+
+    GameRunner(BatchOptions options, AtomicLong nextGame, ResultWriter writer,
+               TraceRecorder trace) {
+        mOptions = options;
+        mNextGame = nextGame;
+        mWriter = writer;
+        mTrace = trace;
+        mSim = new SnakeSimulation(options.width, options.height, options.eatReach);
+        if (trace != null) {
+            mTraceGame = trace.addName("game");
+            mSim.setTraceRecorder(trace);
+        }
+        mAutopilot = options.player.equals(BatchOptions.PLAYER_AUTOPILOT) ? new Autopilot(mSim) : null;
+    }
+
+    @Override
+    public void run() {
+        if (mTrace != null) {
+            mTrace.nameCurrentThread();
+        }
+        try {
+            for (long game = mNextGame.getAndIncrement(); game < mOptions.games;
+                 game = mNextGame.getAndIncrement()) {
+                play(game);
+            }
+        } catch (IOException e) {
+            // Stop this worker, the batch reports it at the end
+            mError = e;
+        }
+    }
+
+    // Play one game to the end, the same rules as SnakeGame.update()
+    private void play(long game) throws IOException {
+        // Each game has its own seed so the results don't depend
+        // on which thread played it
+        long seed = mOptions.seed + game;
+        mSim.setSeed(seed);
+        mRandom.setSeed(seed);
+        long start = mTrace != null ? mTrace.begin(mTraceGame) : 0;
+        mSim.newGame();
+
+        File file = null;
+        FileChannel channel = null;
+        ReplayWriter replay = null;
+        if (mOptions.replays != null) {
+            file = new File(mOptions.replays, "game-" + game + ".snkr");
+            channel = new FileOutputStream(file).getChannel();
+            replay = new ReplayWriter(channel, REPLAY_BUFFER_SIZE);
+        }
+        boolean recorded = false;
+        try {
+            if (replay != null) {
+                replay.begin(seed, mOptions.width, mOptions.height, mOptions.eatReach);
+            }
+
+            while (!mSim.isOver() && mSim.getTicks() < mOptions.maxTicks
+                    && (mAutopilot == null || !mAutopilot.isStuck())) {
+                Turn turn = nextTurn();
+                if (replay != null) {
+                    replay.turn(mSim.getTicks() + 1, turn);
+                }
+                mSim.tick(turn);
+                if (replay != null && mSim.getTicks() % ReplayWriter.CHECKPOINT_TICKS == 0) {
+                    replay.checkpoint(mSim.getTicks(), mSim.getStateHash());
+                }
+            }
+            if (mTrace != null) {
+                mTrace.end(mTraceGame, start);
+            }
+
+            if (replay != null) {
+                // A game cut off by the tick limit or given up on didn't end,
+                // but can still be checked up to where it got
+                if (mSim.isOver()) {
+                    replay.end(mSim.getTicks(), mSim.getStateHash());
+                } else {
+                    replay.checkpoint(mSim.getTicks(), mSim.getStateHash());
+                }
+                replay.close();
+            }
+            recorded = true;
+        } finally {
+            if (!recorded && channel != null) {
+                // Let go of the file and don't leave half a replay behind
+                try {
+                    channel.close();
+                } catch (IOException closeError) {
+                    // Already failing, the first error is the one to report
+                }
+                file.delete();
+            }
+        }
+
+        String cause;
+        if (mSim.getSnake().isDead()) {
+            switch (mSim.getSnake().getDeathCause()) {
+                case WALL:
+                    cause = CAUSE_WALL;
+                    mWalls++;
+                    break;
+                default:
+                    cause = CAUSE_BODY;
+                    mBodies++;
+                    break;
+            }
+        } else if (mSim.isOver()) {
+            cause = CAUSE_BOARD_FULL;
+            mBoardsFull++;
+        } else if (mSim.getTicks() < mOptions.maxTicks) {
+            cause = CAUSE_STUCK;
+            mStuck++;
+        } else {
+            cause = CAUSE_TICK_LIMIT;
+            mTickLimits++;
+        }
+
+        mGames++;
+        mTicks += mSim.getTicks();
+        mScore += mSim.getScore();
+        mWriter.write(mLine, game, seed, mSim.getScore(), mSim.getSnake().length(),
+                mSim.getTicks(), cause);
+    }
+
+    private Turn nextTurn() {
+        if (mAutopilot != null) {
+            return mAutopilot.plan();
+        }
+        // The random player mostly goes straight
+        int roll = mRandom.nextInt(RANDOM_TURN_ODDS);
+        return roll == 0 ? Turn.LEFT : roll == 1 ? Turn.RIGHT : Turn.NONE;
+    }
+
+    long getGames() {
+        return mGames;
+    }
+
+    long getTicks() {
+        return mTicks;
+    }
+
+    long getScore() {
+        return mScore;
+    }
+
+    long getWalls() {
+        return mWalls;
+    }
+
+    long getBodies() {
+        return mBodies;
+    }
+
+    long getBoardsFull() {
+        return mBoardsFull;
+    }
+
+    long getTickLimits() {
+        return mTickLimits;
+    }
+
+    long getStuck() {
+        return mStuck;
+    }
+
+    IOException getError() {
+        return mError;
+    }
+}
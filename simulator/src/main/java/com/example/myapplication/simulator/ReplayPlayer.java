@@ -0,0 +1,118 @@
+package com.example.myapplication.simulator;
+
+import com.example.myapplication.core.Replay;
+import com.example.myapplication.core.SnakeSimulation;
+import com.example.myapplication.core.Turn;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+// Plays recorded games back as fast as the simulation goes
+// and checks they turn out the same as when they were recorded.
+// Prints each game's final hash, and the first tick that
+// doesn't match if the game played out differently
+public class ReplayPlayer {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayPlayer FILE...");
+            System.exit(2);
+            return;
+        }
+
+        int diverged = 0;
+        long totalTicks = 0;
+        long start = System.nanoTime();
+        for (String path : args) {
+            Replay replay;
+            FileChannel channel = new FileInputStream(path).getChannel();
+            try {
+                replay = Replay.read(channel);
+            } finally {
+                channel.close();
+            }
+
+            Result result = play(replay);
+            totalTicks += result.ticks;
+            StringBuilder line = new StringBuilder(path)
+                    .append(": ").append(result.ticks).append(" ticks, score ").append(result.score)
+                    .append(", hash ").append(String.format("%016x", result.hash));
+            if (result.divergedTick >= 0) {
+                diverged++;
+                line.append(", DIVERGED at tick ").append(result.divergedTick)
+                        .append(": ").append(result.reason);
+            } else if (replay.hasEnd()) {
+                line.append(", matches");
+            } else {
+                line.append(", matches so far, the recording has no end");
+            }
+            System.out.println(line);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.println(String.format("%d replays, %d ticks in %.2f s, %.0f ticks/s",
+                args.length, totalTicks, seconds, totalTicks / seconds));
+        if (diverged > 0) {
+            System.err.println(diverged + " of " + args.length + " replays diverged");
+            System.exit(1);
+        }
+    }
+
+    // What happened when a replay was played back
+    private static class Result {
+        long ticks;
+        int score;
+        long hash;
+        // -1 if it matched the recording
+        long divergedTick = -1;
+        String reason;
+    }
+
+    // Feed the recorded turns in on their ticks,
+    // checking every hash the recording has along the way
+    static Result play(Replay replay) {
+        SnakeSimulation sim = new SnakeSimulation(replay.getWidth(), replay.getHeight(),
+                replay.getEatReach());
+        sim.setSeed(replay.getSeed());
+        sim.newGame();
+
+        Result result = new Result();
+        int count = replay.getRecordCount();
+        long lastTick = count > 0 ? replay.getTick(count - 1) : 0;
+        int record = 0;
+        for (long tick = 1; tick <= lastTick && result.divergedTick < 0; tick++) {
+            // The turn for this tick comes before any hash for it
+            Turn turn = Turn.NONE;
+            if (record < count && replay.getTick(record) == tick && replay.getTurn(record) != null) {
+                turn = replay.getTurn(record);
+                record++;
+            }
+
+            if (sim.isOver()) {
+                result.divergedTick = tick;
+                result.reason = "the game was already over";
+                break;
+            }
+            sim.tick(turn);
+
+            while (record < count && replay.getTick(record) == tick) {
+                long expected = replay.getHash(record);
+                long actual = sim.getStateHash();
+                if (actual != expected) {
+                    result.divergedTick = tick;
+                    result.reason = String.format("expected hash %016x, got %016x", expected, actual);
+                } else if (replay.isEnd(record) && !sim.isOver()) {
+                    result.divergedTick = tick;
+                    result.reason = "the recording ended but the game didn't";
+                }
+                record++;
+            }
+        }
+
+        result.ticks = sim.getTicks();
+        result.score = sim.getScore();
+        result.hash = sim.getStateHash();
+        return result;
+    }
+}
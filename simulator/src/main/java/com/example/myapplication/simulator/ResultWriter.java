@@ -0,0 +1,53 @@
+package com.example.myapplication.simulator;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Streams one line per game as CSV or newline delimited JSON.
+// Workers build their line in their own StringBuilder
+// and only hold the lock while it's copied into the writer
+class ResultWriter {
+
+    private static final String CSV_HEADER = "game,seed,score,length,ticks,cause";
+
+    private final Writer mOut;
+    private final boolean mJson;
+
+    ResultWriter(Writer out, boolean json) throws IOException {
+        mOut = out;
+        mJson = json;
+        if (!json) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+        }
+    }
+
+    void write(StringBuilder line, long game, long seed, int score, int length,
+               long ticks, String cause) throws IOException {
+        line.setLength(0);
+        if (mJson) {
+            line.append("{\"game\":").append(game)
+                    .append(",\"seed\":").append(seed)
+                    .append(",\"score\":").append(score)
+                    .append(",\"length\":").append(length)
+                    .append(",\"ticks\":").append(ticks)
+                    .append(",\"cause\":\"").append(cause).append("\"}");
+        } else {
+            line.append(game).append(',')
+                    .append(seed).append(',')
+                    .append(score).append(',')
+                    .append(length).append(',')
+                    .append(ticks).append(',')
+                    .append(cause);
+        }
+        line.append('\n');
+
+        synchronized (this) {
+            mOut.append(line);
+        }
+    }
+
+    synchronized void close() throws IOException {
+        mOut.close();
+    }
+}